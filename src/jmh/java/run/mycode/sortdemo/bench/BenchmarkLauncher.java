@@ -0,0 +1,76 @@
+package run.mycode.sortdemo.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import run.mycode.sortdemo.sort.SorterRegistry;
+import run.mycode.sortdemo.sort.SteppableSorter;
+
+/**
+ * Runs SorterBenchmark for every sorter in run.mycode.sortdemo.sort. The
+ * quadratic sorters would take hours on the largest arrays, so each sorter is
+ * only run up to its size limit (see SorterRegistry.maxSize). Any JMH command line options given are
+ * passed on, for example -rf json or -f 1. Since the sorters are run in one
+ * group per size limit, a result file named with -rff is written once per
+ * group, with the size limit added to its name.
+ *
+ * @author bdahl
+ */
+public class BenchmarkLauncher {
+
+    private static final int[] SIZES = {100, 1000, 10000, 100000, 1000000};
+
+    @SuppressWarnings("rawtypes")
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        CommandLineOptions cmdLine = new CommandLineOptions(args);
+
+        // Group the sorters by size limit, so each group is one JMH run
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (Class<? extends SteppableSorter> c
+                : SorterRegistry.findSorters().values()) {
+            String name = c.getSimpleName();
+            int limit = SorterRegistry.maxSize(c);
+            groups.computeIfAbsent(limit, k -> new ArrayList<>()).add(name);
+        }
+
+        for (Map.Entry<Integer, List<String>> group : groups.entrySet()) {
+            List<String> sizes = new ArrayList<>();
+            for (int size : SIZES) {
+                if (size <= group.getKey()) {
+                    sizes.add(String.valueOf(size));
+                }
+            }
+
+            OptionsBuilder opts = new OptionsBuilder();
+            opts.parent(cmdLine)
+                    .include(SorterBenchmark.class.getSimpleName())
+                    .param("sorter", group.getValue().toArray(new String[0]))
+                    .param("size", sizes.toArray(new String[0]));
+            if (cmdLine.getResult().hasValue()) {
+                opts.result(groupFile(cmdLine.getResult().get(),
+                        sizes.get(sizes.size() - 1)));
+            }
+
+            new Runner(opts.build()).run();
+        }
+    }
+
+    /**
+     * Add a group's size limit to the name of a result file, before its
+     * extension
+     */
+    private static String groupFile(String file, String limit) {
+        int dot = file.lastIndexOf('.');
+        if (dot <= file.lastIndexOf('/') + 1) {
+            return file + "-" + limit;
+        }
+        return file.substring(0, dot) + "-" + limit + file.substring(dot);
+    }
+}
@@ -0,0 +1,128 @@
+package run.mycode.sortdemo.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import run.mycode.sortdemo.sort.SorterRegistry;
+import run.mycode.sortdemo.sort.SteppableSorter;
+import run.mycode.sortdemo.util.DataLayout;
+import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+
+/**
+ * Measures the time taken by a sorter to sort a DemoIntArray at full speed,
+ * with the array's instrumentation turned on or off, so that both the
+ * algorithms and the cost of counting their operations can be tracked.
+ *
+ * Every invocation copies the data into a new array and creates a new sorter
+ * for it, since a sorter can only run once. Doing that in a per-invocation
+ * setup would add JMH's own timing overhead to sorts that take microseconds,
+ * so it is measured instead, both as part of sort() and by itself in
+ * prepare(), which can be subtracted to find the time of the sort alone.
+ *
+ * The sorters are chosen by BenchmarkLauncher, which finds every sorter in
+ * SorterRegistry and keeps the slow ones away from the largest arrays. To
+ * run this benchmark directly, name the sorters with -p sorter=QuickSorter.
+ *
+ * @author bdahl
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SorterBenchmark {
+
+    /**
+     * The class name of the sorter to run
+     */
+    @Param({})
+    public String sorter;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "NEARLY_SORTED"})
+    public DataLayout layout;
+
+    @Param({"true", "false"})
+    public boolean instrumented;
+
+    @SuppressWarnings("rawtypes")
+    private Constructor<? extends SteppableSorter> sortConstructor;
+    private int[] data;
+
+    /**
+     * Find the sorter and generate the data to sort
+     */
+    @Setup(Level.Trial)
+    @SuppressWarnings("rawtypes")
+    public void findSorter() throws NoSuchMethodException {
+        Class<? extends SteppableSorter> sortClass = null;
+        for (Map.Entry<String, Class<? extends SteppableSorter>> e
+                : SorterRegistry.findSorters().entrySet()) {
+            if (e.getValue().getSimpleName().equals(sorter)) {
+                sortClass = e.getValue();
+            }
+        }
+        if (sortClass == null) {
+            throw new IllegalArgumentException("Unknown sorter: " + sorter);
+        }
+
+        // Look the constructor up once, rather than on every invocation
+        sortConstructor = sortClass.getConstructor(DemoArray.class);
+
+        data = new int[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = i;
+        }
+        layout.arrange(data, new Random(42));
+    }
+
+    /**
+     * Copy the unsorted data into a new array and create a sorter for it
+     *
+     * @return a sorter, ready to sort its own copy of the data
+     */
+    @SuppressWarnings("unchecked")
+    private SteppableSorter<Integer> newSort()
+            throws ReflectiveOperationException {
+        DemoIntArray arr = new DemoIntArray(data);
+        arr.setInstrumented(instrumented);
+        return sortConstructor.newInstance(arr);
+    }
+
+    /**
+     * The baseline: prepare a sort without running it
+     */
+    @Benchmark
+    public SteppableSorter<Integer> prepare()
+            throws ReflectiveOperationException {
+        return newSort();
+    }
+
+    /**
+     * Prepare a sort and run it
+     */
+    @Benchmark
+    public SteppableSorter<Integer> sort()
+            throws ReflectiveOperationException, InterruptedException {
+        SteppableSorter<Integer> sort = newSort();
+        sort.sortNow();
+        return sort;
+    }
+}
@@ -0,0 +1,572 @@
+package run.mycode.sortdemo;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import run.mycode.sortdemo.sort.ExternalMergeSorter;
+import run.mycode.sortdemo.sort.GapSequence;
+import run.mycode.sortdemo.sort.ShellSorter;
+import run.mycode.sortdemo.sort.SorterRegistry;
+import run.mycode.sortdemo.sort.SteppableSorter;
+import run.mycode.sortdemo.util.DataLayout;
+import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+import run.mycode.sortdemo.util.MappedIntArray;
+
+/**
+ * Runs sorting algorithms without a user interface, at full speed, and reports
+ * their operation counts and timings as CSV or JSON.
+ *
+ * @author bdahl
+ */
+@SuppressWarnings("rawtypes")
+public class SortBenchmark {
+
+    private static final String USAGE
+            = "Usage: SortBenchmark [options]\n"
+            + "  --sorters a,b,...   sorters to run, by name or class name "
+            + "(default: all)\n"
+            + "  --sizes n,m,...     array sizes (default: 100,1000,10000)\n"
+            + "  --layouts a,b,...   random, sorted, reversed, nearly_sorted "
+            + "(default: all)\n"
+            + "  --seeds s,t,...     random seeds (default: 1)\n"
+            + "  --dups k            fill the arrays with only k distinct values,\n"
+            + "                      and check which sorts are stable\n"
+            + "                      (default: every value distinct)\n"
+            + "  --gaps a,b,...      gap sequences for Shell Sort: shell, knuth,\n"
+            + "                      sedgewick, ciura, tokuda (default: ciura)\n"
+            + "  --memory n          elements External Merge Sort may hold in\n"
+            + "                      memory (default: a sixteenth of the array)\n"
+            + "  --storage s         heap, or mapped to keep the arrays in\n"
+            + "                      memory-mapped temporary files (default: heap)\n"
+            + "  --reps n            repetitions of each run (default: 1)\n"
+            + "  --format csv|json   output format (default: csv)\n"
+            + "  --out file          file to write to (default: stdout)\n"
+            + "  --list              list the available sorters and exit\n";
+
+    private static final List<String> VALUE_OPTIONS = Arrays.asList(
+            "--sorters", "--sizes", "--layouts", "--seeds", "--dups", "--gaps",
+            "--memory", "--storage", "--reps", "--format", "--out");
+
+    private final List<Class<? extends SteppableSorter>> sorters;
+    private final List<Integer> sizes;
+    private final List<DataLayout> layouts;
+    private final List<Long> seeds;
+    private final List<GapSequence> gaps;
+    private int reps;
+    private int unique;     // distinct values in each array, 0 for all
+    private int memory;     // 0 to let External Merge Sort choose
+    private boolean mapped;
+    private boolean json;
+    private String outFile;
+
+    SortBenchmark() {
+        sorters = new ArrayList<>();
+        sizes = new ArrayList<>();
+        layouts = new ArrayList<>();
+        seeds = new ArrayList<>();
+        gaps = new ArrayList<>();
+        reps = 1;
+        unique = 0;
+        memory = 0;
+        mapped = false;
+        json = false;
+        outFile = null;
+    }
+
+    /**
+     * Run the benchmarks described by the command line arguments
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        SortBenchmark bench = new SortBenchmark();
+
+        try {
+            if (!bench.parse(args)) {
+                return;
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        try (PrintStream out = bench.outFile == null ? System.out
+                : new PrintStream(bench.outFile, "UTF-8")) {
+            bench.run(out);
+        } catch (FileNotFoundException | java.io.UnsupportedEncodingException ex) {
+            System.err.println("Can't write to " + bench.outFile + ": "
+                    + ex.getMessage());
+            System.exit(1);
+        } catch (IOException ex) {
+            System.err.println("Can't map an array: " + ex.getMessage());
+            System.exit(1);
+        } catch (InterruptedException ex) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the command line arguments
+     *
+     * @param args the command line arguments
+     * @return false if there is nothing to run
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    boolean parse(String[] args) {
+        final Map<String, Class<? extends SteppableSorter>> available
+                = SorterRegistry.findSorters();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                System.out.print(USAGE);
+                return false;
+            }
+            if ("--list".equals(arg)) {
+                available.forEach((name, c) -> System.out.println(
+                        c.getSimpleName() + "\t" + name));
+                return false;
+            }
+
+            if (!VALUE_OPTIONS.contains(arg)) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+
+            switch (arg) {
+                case "--sorters":
+                    for (String name : value.split(",")) {
+                        sorters.add(findSorter(available, name.trim()));
+                    }
+                    break;
+                case "--sizes":
+                    for (String size : value.split(",")) {
+                        sizes.add(parseInt(size, 0));
+                    }
+                    break;
+                case "--layouts":
+                    for (String layout : value.split(",")) {
+                        layouts.add(findLayout(layout.trim()));
+                    }
+                    break;
+                case "--seeds":
+                    for (String seed : value.split(",")) {
+                        try {
+                            seeds.add(Long.parseLong(seed.trim()));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Bad seed: "
+                                    + seed);
+                        }
+                    }
+                    break;
+                case "--dups":
+                    unique = parseInt(value, 1);
+                    break;
+                case "--gaps":
+                    for (String gap : value.split(",")) {
+                        gaps.add(findGaps(gap.trim()));
+                    }
+                    break;
+                case "--memory":
+                    memory = parseInt(value, 1);
+                    break;
+                case "--storage":
+                    if ("mapped".equalsIgnoreCase(value)) {
+                        mapped = true;
+                    } else if ("heap".equalsIgnoreCase(value)) {
+                        mapped = false;
+                    } else {
+                        throw new IllegalArgumentException("Unknown storage: "
+                                + value);
+                    }
+                    break;
+                case "--reps":
+                    reps = parseInt(value, 1);
+                    break;
+                case "--format":
+                    if ("json".equalsIgnoreCase(value)) {
+                        json = true;
+                    } else if ("csv".equalsIgnoreCase(value)) {
+                        json = false;
+                    } else {
+                        throw new IllegalArgumentException("Unknown format: "
+                                + value);
+                    }
+                    break;
+                case "--out":
+                    outFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        // Fill in defaults for anything not given
+        if (sorters.isEmpty()) {
+            sorters.addAll(available.values());
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(Arrays.asList(100, 1000, 10000));
+        }
+        if (layouts.isEmpty()) {
+            layouts.addAll(Arrays.asList(DataLayout.values()));
+        }
+        if (seeds.isEmpty()) {
+            seeds.add(1L);
+        }
+        if (gaps.isEmpty()) {
+            gaps.add(GapSequence.CIURA);
+        }
+
+        return true;
+    }
+
+    private static int parseInt(String value, int min) {
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n < min) {
+                throw new IllegalArgumentException("Value must be at least "
+                        + min + ": " + value);
+            }
+            return n;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    /**
+     * Find a sorter by its display name or class name, ignoring case, spaces
+     * and any "Sort" or "Sorter" suffix, so "quick" finds "Quick Sort"
+     */
+    private static Class<? extends SteppableSorter> findSorter(
+            Map<String, Class<? extends SteppableSorter>> available,
+            String name) {
+        final String wanted = simplify(name);
+        for (Map.Entry<String, Class<? extends SteppableSorter>> e
+                : available.entrySet()) {
+            if (simplify(e.getKey()).equals(wanted)
+                    || simplify(e.getValue().getSimpleName()).equals(wanted)) {
+                return e.getValue();
+            }
+        }
+        throw new IllegalArgumentException("Unknown sorter: " + name);
+    }
+
+    private static String simplify(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", "")
+                .replaceFirst("sort(er)?$", "");
+    }
+
+    private static DataLayout findLayout(String name) {
+        for (DataLayout layout : DataLayout.values()) {
+            if (layout.name().replace("_", "")
+                    .equalsIgnoreCase(name.replaceAll("[\\s_-]", ""))) {
+                return layout;
+            }
+        }
+        throw new IllegalArgumentException("Unknown layout: " + name);
+    }
+
+    private static GapSequence findGaps(String name) {
+        for (GapSequence gaps : GapSequence.values()) {
+            if (gaps.name().equalsIgnoreCase(name)) {
+                return gaps;
+            }
+        }
+        throw new IllegalArgumentException("Unknown gap sequence: " + name);
+    }
+
+    /**
+     * Run every combination of sorter, size, layout and seed
+     *
+     * @param out the stream to write results to
+     * @throws IOException if an array can't be mapped
+     * @throws InterruptedException if a sort is interrupted
+     */
+    void run(PrintStream out) throws IOException, InterruptedException {
+        if (json) {
+            out.println("[");
+        } else {
+            out.println("sorter,size,layout,seed,rep,accesses,reads,writes,"
+                    + "swaps,compares,bucket_writes,bytes_read,bytes_written,"
+                    + "passes,wall_ns,cpu_ns,phase_ns,phase_accesses,sorted,"
+                    + "unique,stable");
+        }
+
+        boolean first = true;
+        for (Class<? extends SteppableSorter> sortClass : sorters) {
+            // Only Shell Sort is run once for each gap sequence
+            final List<GapSequence> variants = sortClass == ShellSorter.class
+                    ? gaps : Collections.singletonList(null);
+
+            for (GapSequence gap : variants) {
+                for (int size : sizes) {
+                    for (DataLayout layout : layouts) {
+                        for (long seed : seeds) {
+                            for (int rep = 1; rep <= reps; rep++) {
+                                Result r = runOne(sortClass, gap, size,
+                                        layout, seed);
+                                if (json) {
+                                    out.print(first ? "" : ",\n");
+                                    out.print(r.toJson(rep));
+                                } else {
+                                    out.println(r.toCsv(rep));
+                                }
+                                out.flush();
+                                first = false;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (json) {
+            out.println("\n]");
+        }
+    }
+
+    /**
+     * Sort one array and measure the result
+     *
+     * @param gap the gap sequence for Shell Sort, or null for other sorters
+     */
+    private Result runOne(Class<? extends SteppableSorter> sortClass,
+            GapSequence gap, int size, DataLayout layout, long seed)
+            throws IOException, InterruptedException {
+        int[] data = values(size);
+        layout.arrange(data, new Random(seed));
+
+        DemoArray<Integer> arr = mapped ? new MappedIntArray(data)
+                : new DemoIntArray(data);
+        try {
+            SteppableSorter<Integer> sorter = SorterRegistry.create(sortClass,
+                    arr);
+            if (gap != null) {
+                ((ShellSorter<Integer>) sorter).setGapSequence(gap);
+            }
+            if (memory > 0 && sorter instanceof ExternalMergeSorter) {
+                ((ExternalMergeSorter) sorter).setMemoryBudget(memory);
+            }
+            sorter.sortNow();
+
+            Result r = new Result();
+            r.sorter = SorterRegistry.nameOf(sortClass);
+            if (gap != null) {
+                r.sorter += " (" + gap + ")";
+            }
+            r.size = size;
+            r.layout = layout;
+            r.seed = seed;
+            r.unique = unique > 0 ? Math.min(unique, size) : size;
+            r.add(arr);
+            if (sorter.usesScratchArray()) {
+                r.add(sorter.getScratchArray());
+            }
+            r.wallNanos = sorter.getElapsedNanos();
+            r.cpuNanos = sorter.getCpuNanos();
+            r.phaseNanos = sorter.getPhaseNanos();
+            r.phaseAccesses = sorter.getPhaseAccesses();
+
+            if (unique > 0) {
+                r.stable = isStable(sortClass, gap, data);
+            }
+
+            int[] sorted = arr.toKeyArray();
+            Arrays.sort(data);
+            r.sorted = Arrays.equals(sorted, data);
+
+            return r;
+        } finally {
+            // Free the memory-mapped files before the next run
+            if (arr instanceof MappedIntArray) {
+                ((MappedIntArray) arr).close();
+            }
+        }
+    }
+
+    /**
+     * Create sorted values to arrange into a layout, every one distinct
+     * unless --dups limits the number of distinct values
+     *
+     * @param size the number of values
+     * @return the values, in ascending order
+     */
+    private int[] values(int size) {
+        final int[] data = new int[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = unique > 0 ? (int) ((long) i * unique / size) : i;
+        }
+        return data;
+    }
+
+    /**
+     * Sort the same data again, uninstrumented, tagging each element with
+     * its original location, and check that equal elements kept their order
+     *
+     * @param gap the gap sequence for Shell Sort, or null for other sorters
+     * @param data the data that was sorted
+     * @return whether the sort was stable, or null if the sorter only sorts
+     *         ints, which can't be told apart
+     */
+    private Boolean isStable(Class<? extends SteppableSorter> sortClass,
+            GapSequence gap, int[] data) throws InterruptedException {
+        final Tagged[] tagged = new Tagged[data.length];
+        for (int i = 0; i < data.length; i++) {
+            tagged[i] = new Tagged(data[i], i);
+        }
+        final DemoArray<Tagged> arr = new DemoArray<>(tagged);
+        arr.setKeyExtractor(t -> t.key);
+        arr.setInstrumented(false);
+
+        final SteppableSorter<Tagged> sorter;
+        try {
+            sorter = SorterRegistry.create(sortClass, arr);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (gap != null) {
+            ((ShellSorter<Tagged>) sorter).setGapSequence(gap);
+        }
+        sorter.sortNow();
+
+        for (int i = 1; i < arr.length(); i++) {
+            final Tagged prev = arr.get(i - 1);
+            final Tagged next = arr.get(i);
+            if (prev.key == next.key && prev.index > next.index) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A value tagged with its original location. Only the value is compared,
+     * so a stable sort keeps equal values in the order of their locations.
+     */
+    private static final class Tagged implements Comparable<Tagged> {
+
+        final int key;
+        final int index;
+
+        Tagged(int key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Tagged other) {
+            return Integer.compare(key, other.key);
+        }
+    }
+
+    /**
+     * The measurements from one sort
+     */
+    private static class Result {
+        String sorter;
+        int size;
+        DataLayout layout;
+        long seed;
+        long accesses;
+        long reads;
+        long writes;
+        long swaps;
+        long compares;
+        long bucketWrites;
+        long bytesRead;
+        long bytesWritten;
+        long passes;
+        long wallNanos;
+        long cpuNanos;
+        Map<String, Long> phaseNanos;
+        Map<String, Long> phaseAccesses;
+        boolean sorted;
+        int unique;
+        Boolean stable;     // null unless checked
+
+        /**
+         * Add the counts from an array used by the sort
+         */
+        void add(DemoArray<?> arr) {
+            accesses += arr.getAccesses();
+            reads += arr.getGets();
+            writes += arr.getPuts();
+            swaps += arr.getSwaps();
+            compares += arr.getCompares();
+            bucketWrites += arr.getBucketWrites();
+            bytesRead += arr.getBytesRead();
+            bytesWritten += arr.getBytesWritten();
+            passes += arr.getPasses();
+        }
+
+        String toCsv(int rep) {
+            return String.format(Locale.ROOT,
+                    "\"%s\",%d,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,"
+                    + "\"%s\",\"%s\",%b,%d,%s",
+                    sorter.replace("\"", "\"\""), size, layout.name(), seed,
+                    rep, accesses, reads, writes, swaps, compares, bucketWrites,
+                    bytesRead, bytesWritten, passes, wallNanos, cpuNanos,
+                    phasesToCsv(phaseNanos), phasesToCsv(phaseAccesses),
+                    sorted, unique, stable == null ? "" : stable);
+        }
+
+        String toJson(int rep) {
+            return String.format(Locale.ROOT,
+                    "  {\"sorter\": \"%s\", \"size\": %d, \"layout\": \"%s\", "
+                    + "\"seed\": %d, \"rep\": %d, \"accesses\": %d, "
+                    + "\"reads\": %d, \"writes\": %d, \"swaps\": %d, "
+                    + "\"compares\": %d, \"bucket_writes\": %d, "
+                    + "\"bytes_read\": %d, \"bytes_written\": %d, "
+                    + "\"passes\": %d, "
+                    + "\"wall_ns\": %d, \"cpu_ns\": %d, "
+                    + "\"phase_ns\": {%s}, \"phase_accesses\": {%s}, "
+                    + "\"sorted\": %b, \"unique\": %d, \"stable\": %s}",
+                    sorter.replace("\\", "\\\\").replace("\"", "\\\""), size,
+                    layout.name(), seed, rep, accesses, reads, writes, swaps,
+                    compares, bucketWrites, bytesRead, bytesWritten, passes,
+                    wallNanos, cpuNanos, phasesToJson(phaseNanos),
+                    phasesToJson(phaseAccesses), sorted, unique, stable);
+        }
+
+        /**
+         * Format the measurements of each phase as name=value pairs separated
+         * by semicolons
+         */
+        static String phasesToCsv(Map<String, Long> phases) {
+            StringBuilder s = new StringBuilder();
+            for (Map.Entry<String, Long> e : phases.entrySet()) {
+                s.append(s.length() == 0 ? "" : ";")
+                        .append(e.getKey()).append('=').append(e.getValue());
+            }
+            return s.toString();
+        }
+
+        /**
+         * Format the measurements of each phase as the members of a JSON
+         * object
+         */
+        static String phasesToJson(Map<String, Long> phases) {
+            StringBuilder s = new StringBuilder();
+            for (Map.Entry<String, Long> e : phases.entrySet()) {
+                s.append(s.length() == 0 ? "" : ", ")
+                        .append('"').append(e.getKey()).append("\": ")
+                        .append(e.getValue());
+            }
+            return s.toString();
+        }
+    }
+}
@@ -14,6 +14,9 @@ public class AwfulSort<T extends Comparable<T>>
 
     public static final String NAME = "Awful Sort";
 
+    // The largest array worth sorting, larger ones take far too long
+    public static final int MAX_SIZE = 1_000;
+
     /**
      * Prepare to bubble sort a DemoArray
      *
@@ -0,0 +1,44 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a bitonic sort on a DemoArray with a sorting network. Sorted blocks
+ * are merged in pairs: the first stage of each merge compares every element
+ * of a pair of blocks with its mirror image in the other block, which leaves
+ * two bitonic halves, then each following stage compares elements half as
+ * far apart until neighbors have been compared. Every comparison puts the
+ * smaller element first, so the array can be padded to a power of two.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class BitonicSorter<T extends Comparable<T>> extends NetworkSorter<T> {
+
+    public static final String NAME = "Bitonic Sort";
+
+    /**
+     * Prepare to bitonic sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public BitonicSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sortNetwork() throws InterruptedException {
+        final int n = arr.length();
+
+        for (int size = 2; size / 2 < n; size *= 2) {
+            final int mask = size - 1;
+            runStage(i -> i ^ mask);
+
+            for (int dist = size / 4; dist > 0; dist /= 2) {
+                final int bit = dist;
+                runStage(i -> i ^ bit);
+            }
+        }
+    }
+}
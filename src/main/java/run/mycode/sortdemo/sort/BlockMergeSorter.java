@@ -0,0 +1,394 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a stable block merge sort on a DemoArray, in the style of WikiSort,
+ * using a scratch array of only about the square root of the array's length.
+ * Small runs are insertion sorted, then pairs of runs are merged bottom-up.
+ * When one of the two runs fits in the scratch array they are merged through
+ * it as in a merge sort. Otherwise the first run is cut into blocks the size
+ * of the scratch array, which are rolled through the second run by swapping
+ * them with its blocks. Each time the smallest remaining block belongs before
+ * the last block of the second run passed over, that block is dropped into
+ * place with a rotation and the block dropped before it is merged with the
+ * elements of the second run that now follow it, through the scratch array.
+ *
+ * Besides the scratch array of about sqrt(n) elements the sort keeps a table
+ * of one int per block, another sqrt(n) ints, to know which of the rolled
+ * blocks came first. Writes to the table are counted as bucket writes, like
+ * the count tables of the radix sorts.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class BlockMergeSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    public static final String NAME = "Block Merge Sort";
+
+    // Runs this long are insertion sorted before merging
+    private static final int INSERTION_SIZE = 16;
+
+    private final DemoArray<T> tmp; // a scratch array of one block
+
+    private final int blockSize;
+
+    // The original order of the blocks being rolled, as a ring
+    private final int[] blockOrder;
+
+    /**
+     * Prepare to block merge sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public BlockMergeSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        final int n = arr.length();
+        this.blockSize = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+        this.tmp = arr.createScratch(blockSize);
+        this.blockOrder = new int[n / blockSize + 1];
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        final int n = arr.length();
+
+        for (int i = 0; i < n; i += INSERTION_SIZE) {
+            InsertionSorter.insertionSort(arr, step, i,
+                    Math.min(n, i + INSERTION_SIZE));
+        }
+
+        for (int width = INSERTION_SIZE; width < n; width *= 2) {
+            for (int lo = 0; lo + width < n; lo += 2 * width) {
+                merge(lo, lo + width, Math.min(n, lo + 2 * width));
+            }
+        }
+
+        done = true;
+    }
+
+    /**
+     * Merge two neighboring sorted runs of the array
+     *
+     * @param lo the first location of the first run
+     * @param mid the first location of the second run
+     * @param hi one past the last location of the second run
+     */
+    private void merge(int lo, int mid, int hi) throws InterruptedException {
+        step.acquire();  // Pause for the next step
+        if (arr.compare(mid - 1, mid) <= 0) {
+            return;  // Already in order
+        }
+
+        if (mid - lo <= blockSize) {
+            mergeForward(lo, mid, hi);
+        } else if (hi - mid <= blockSize) {
+            mergeBackward(lo, mid, hi);
+        } else {
+            blockMerge(lo, mid, hi);
+        }
+    }
+
+    /**
+     * Merge two runs by rolling blocks of the first through the second
+     */
+    private void blockMerge(int lo, int mid, int hi)
+            throws InterruptedException {
+        final int s = blockSize;
+
+        // The first run is split into whole blocks, the odd part at its start
+        // is treated as a block that has already been dropped
+        int aStart = lo + (mid - lo) % s;   // the blocks left to drop
+        int aEnd = mid;
+        int bStart = mid;                   // the next block of the second run
+        int bEnd = mid + s;
+        int lastAStart = lo;                // the last block dropped
+        int lastAEnd = aStart;
+        int lastBStart = aStart;            // the last block rolled past
+        int lastBEnd = aStart;
+
+        final int count = (aEnd - aStart) / s;
+        for (int t = 0; t < count; t++) {
+            blockOrder[t] = t;
+            arr.countBucketWrite();
+        }
+        int head = 0;       // where the first block's number is in the ring
+        int blocks = count; // the number of blocks left to drop
+        int min = 0;        // which of the blocks came first
+
+        while (true) {
+            final int minStart = aStart + min * s;
+
+            boolean drop = bStart == bEnd;
+            if (!drop && lastBEnd > lastBStart) {
+                step.acquire();  // Pause for the next step
+                drop = arr.compare(lastBEnd - 1, minStart) >= 0;
+            }
+
+            if (drop) {
+                // Drop the first block into the last block rolled past,
+                // right before the elements that belong after it
+                final int split = searchFirst(lastBStart, lastBEnd, minStart);
+                final int remaining = lastBEnd - split;
+
+                swapBlocks(aStart, minStart, s);
+                final int first = blockOrder[(head + min) % count];
+                blockOrder[(head + min) % count] = blockOrder[head];
+                blockOrder[head] = first;
+                arr.countBucketWrite();
+                arr.countBucketWrite();
+
+                // Everything before the split belongs before the block
+                mergeForward(lastAStart, lastAEnd, split);
+                rotate(split, aStart, aStart + s);
+
+                lastAStart = aStart - remaining;
+                lastAEnd = lastAStart + s;
+                lastBStart = lastAEnd;
+                lastBEnd = lastAEnd + remaining;
+
+                aStart += s;
+                head = (head + 1) % count;
+                blocks--;
+                if (blocks == 0) {
+                    break;
+                }
+                min = firstBlock(head, blocks, count);
+            } else if (bEnd - bStart < s) {
+                // Move the short last block of the second run ahead of the
+                // blocks left to drop
+                final int len = bEnd - bStart;
+                rotate(aStart, bStart, bEnd);
+
+                lastBStart = aStart;
+                lastBEnd = aStart + len;
+                aStart += len;
+                aEnd += len;
+                bStart = bEnd;
+            } else {
+                // Roll the blocks past the next block of the second run by
+                // swapping the first of them with it
+                swapBlocks(aStart, bStart, s);
+                blockOrder[(head + blocks) % count] = blockOrder[head];
+                arr.countBucketWrite();
+                head = (head + 1) % count;
+                min = min == 0 ? blocks - 1 : min - 1;
+
+                lastBStart = aStart;
+                lastBEnd = aStart + s;
+                aStart += s;
+                aEnd += s;
+                bStart += s;
+                bEnd = Math.min(hi, bEnd + s);
+            }
+        }
+
+        mergeForward(lastAStart, lastAEnd, hi);
+    }
+
+    /**
+     * Find which of the blocks left to drop came first in the first run
+     *
+     * @return the position of the block among those left to drop
+     */
+    private int firstBlock(int head, int blocks, int count) {
+        int first = 0;
+        for (int k = 1; k < blocks; k++) {
+            if (blockOrder[(head + k) % count]
+                    < blockOrder[(head + first) % count]) {
+                first = k;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Merge two neighboring runs, the first no longer than the scratch array,
+     * by moving the first run into the scratch array and merging from the
+     * front
+     */
+    private void mergeForward(int lo, int mid, int hi)
+            throws InterruptedException {
+        if (lo == mid || mid == hi) {
+            return;
+        }
+
+        final int len = mid - lo;
+        for (int i = 0; i < len; i++) {
+            step.acquire();  // Pause for the next step
+            tmp.set(i, arr.get(lo + i));
+        }
+
+        int i = 0;
+        int j = mid;
+        int k = lo;
+        while (i < len && j < hi) {
+            step.acquire();  // Pause for the next step
+            final T b = arr.get(j);
+
+            step.acquire();  // Pause for the next step
+            if (tmp.compare(i, b) > 0) {
+                step.acquire();  // Pause for the next step
+                arr.set(k++, b);
+                j++;
+            } else {
+                step.acquire();  // Pause for the next step
+                arr.set(k++, tmp.remove(i++));
+            }
+        }
+
+        // Anything left of the second run is already in place
+        while (i < len) {
+            step.acquire();  // Pause for the next step
+            arr.set(k++, tmp.remove(i++));
+        }
+    }
+
+    /**
+     * Merge two neighboring runs, the second no longer than the scratch
+     * array, by moving the second run into the scratch array and merging from
+     * the back
+     */
+    private void mergeBackward(int lo, int mid, int hi)
+            throws InterruptedException {
+        final int len = hi - mid;
+        for (int j = 0; j < len; j++) {
+            step.acquire();  // Pause for the next step
+            tmp.set(j, arr.get(mid + j));
+        }
+
+        int i = mid - 1;
+        int j = len - 1;
+        int k = hi - 1;
+        while (i >= lo && j >= 0) {
+            step.acquire();  // Pause for the next step
+            final T a = arr.get(i);
+
+            step.acquire();  // Pause for the next step
+            if (tmp.compare(j, a) < 0) {
+                step.acquire();  // Pause for the next step
+                arr.set(k--, a);
+                i--;
+            } else {
+                step.acquire();  // Pause for the next step
+                arr.set(k--, tmp.remove(j--));
+            }
+        }
+
+        // Anything left of the first run is already in place
+        while (j >= 0) {
+            step.acquire();  // Pause for the next step
+            arr.set(k--, tmp.remove(j--));
+        }
+    }
+
+    /**
+     * Swap two blocks of the array that don't overlap
+     */
+    private void swapBlocks(int a, int b, int len)
+            throws InterruptedException {
+        if (a == b) {
+            return;
+        }
+
+        for (int t = 0; t < len; t++) {
+            step.acquire();  // Pause for the next step
+            arr.swap(a + t, b + t);
+        }
+    }
+
+    /**
+     * Exchange two neighboring ranges of the array, keeping the order of the
+     * elements within each. Goes through the scratch array if either range
+     * fits in it, otherwise reverses both ranges and then the whole.
+     *
+     * @param lo the first location of the first range
+     * @param mid the first location of the second range
+     * @param hi one past the last location of the second range
+     */
+    private void rotate(int lo, int mid, int hi) throws InterruptedException {
+        final int len1 = mid - lo;
+        final int len2 = hi - mid;
+        if (len1 == 0 || len2 == 0) {
+            return;
+        }
+
+        if (len1 <= blockSize) {
+            for (int i = 0; i < len1; i++) {
+                step.acquire();  // Pause for the next step
+                tmp.set(i, arr.get(lo + i));
+            }
+            for (int i = mid; i < hi; i++) {
+                step.acquire();  // Pause for the next step
+                arr.move(i, i - len1);
+            }
+            for (int i = 0; i < len1; i++) {
+                step.acquire();  // Pause for the next step
+                arr.set(lo + len2 + i, tmp.remove(i));
+            }
+        } else if (len2 <= blockSize) {
+            for (int i = 0; i < len2; i++) {
+                step.acquire();  // Pause for the next step
+                tmp.set(i, arr.get(mid + i));
+            }
+            for (int i = mid - 1; i >= lo; i--) {
+                step.acquire();  // Pause for the next step
+                arr.move(i, i + len2);
+            }
+            for (int i = 0; i < len2; i++) {
+                step.acquire();  // Pause for the next step
+                arr.set(lo + i, tmp.remove(i));
+            }
+        } else {
+            reverse(lo, mid);
+            reverse(mid, hi);
+            reverse(lo, hi);
+        }
+    }
+
+    /**
+     * Reverse the order of a range of the array
+     */
+    private void reverse(int lo, int hi) throws InterruptedException {
+        for (int i = lo, j = hi - 1; i < j; i++, j--) {
+            step.acquire();  // Pause for the next step
+            arr.swap(i, j);
+        }
+    }
+
+    /**
+     * Binary search a sorted range of the array for the first element that
+     * is not less than another element of the array
+     *
+     * @param lo the first location of the range
+     * @param hi one past the last location of the range
+     * @param key the location of the element to search for
+     * @return the location of the first element not less than the key, or hi
+     */
+    private int searchFirst(int lo, int hi, int key)
+            throws InterruptedException {
+        while (lo < hi) {
+            final int m = (lo + hi) >>> 1;
+            step.acquire();  // Pause for the next step
+            if (arr.compare(m, key) < 0) {
+                lo = m + 1;
+            } else {
+                hi = m;
+            }
+        }
+        return lo;
+    }
+}
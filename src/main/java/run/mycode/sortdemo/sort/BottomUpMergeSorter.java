@@ -0,0 +1,126 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a bottom-up merge sort on a DemoArray. Instead of recursing, each
+ * pass merges neighboring runs of the same width into runs twice as wide,
+ * starting from runs of a single element. The passes alternate between
+ * merging from the array into the scratch array and back again, so each
+ * element is written once per pass rather than copied out and merged back in
+ * as Merge Sort does. When the number of passes would be odd, the first pass
+ * sorts pairs in place so that the last pass ends in the array.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class BottomUpMergeSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    public static final String NAME = "Bottom-Up Merge Sort";
+
+    private final DemoArray<T> tmp; // a scratch array to work in
+
+    /**
+     * Prepare to bottom-up merge sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public BottomUpMergeSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        this.tmp = arr.createScratch(arr.length());
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        final int n = arr.length();
+        final int passes = 32 - Integer.numberOfLeadingZeros(n - 1);
+
+        int width = 1;
+        if (passes % 2 == 1) {
+            sortPairs();
+            arr.countPass();
+            width = 2;
+        }
+
+        DemoArray<T> src = arr;
+        DemoArray<T> dst = tmp;
+        for (; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                merge(src, dst, lo, Math.min(lo + width, n),
+                        Math.min(lo + 2 * width, n));
+            }
+            arr.countPass();
+
+            DemoArray<T> t = src;
+            src = dst;
+            dst = t;
+        }
+
+        done = true;
+    }
+
+    /**
+     * Sort each pair of neighboring elements in place, making runs of width 2
+     */
+    private void sortPairs() throws InterruptedException {
+        for (int i = 1; i < arr.length(); i += 2) {
+            step.acquire();  // Pause for the next step
+            if (arr.compare(i - 1, i) > 0) {
+                step.acquire();  // Pause for the next step
+                arr.swap(i - 1, i);
+            }
+        }
+    }
+
+    /**
+     * Merge two neighboring sorted runs from one array into the same place
+     * in the other. Equal elements are taken from the left run first, so the
+     * sort is stable.
+     *
+     * @param src the array holding the runs
+     * @param dst the array to merge them into
+     * @param lo the first location of the left run
+     * @param mid the first location of the right run
+     * @param hi one past the last location of the right run
+     */
+    private void merge(DemoArray<T> src, DemoArray<T> dst, int lo, int mid,
+            int hi) throws InterruptedException {
+        int i = lo;
+        int j = mid;
+        int k = lo;
+
+        while (i < mid && j < hi) {
+            step.acquire();  // Pause for the next step
+            if (src.compare(j, i) < 0) {
+                step.acquire();  // Pause for the next step
+                dst.set(k++, src.remove(j++));
+            } else {
+                step.acquire();  // Pause for the next step
+                dst.set(k++, src.remove(i++));
+            }
+        }
+
+        // Whichever run is left over is already in order
+        while (i < mid) {
+            step.acquire();  // Pause for the next step
+            dst.set(k++, src.remove(i++));
+        }
+        while (j < hi) {
+            step.acquire();  // Pause for the next step
+            dst.set(k++, src.remove(j++));
+        }
+    }
+}
@@ -14,6 +14,9 @@ public class BubbleSorter<T extends Comparable<T>>
 
     public static final String NAME = "Bubble Sort";
 
+    // The largest array worth sorting, larger ones take far too long
+    public static final int MAX_SIZE = 10_000;
+
     /**
      * Prepare to bubble sort a DemoArray
      *
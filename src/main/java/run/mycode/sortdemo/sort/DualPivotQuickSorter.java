@@ -0,0 +1,118 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a dual-pivot quick sort on a DemoArray, in the style of
+ * Yaroslavskiy's algorithm used by the JDK. Two pivots split each range into
+ * three parts: elements less than the smaller pivot, elements between the
+ * pivots and elements greater than the larger pivot. The pivots are taken
+ * from a third of the way in from each end of the range, so sorted and
+ * reversed data split evenly, and small ranges are insertion sorted.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class DualPivotQuickSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    public static final String NAME = "Dual-Pivot Quick Sort";
+
+    // Ranges shorter than this are insertion sorted
+    private static final int INSERTION_SIZE = 17;
+
+    /**
+     * Prepare to dual-pivot quick sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public DualPivotQuickSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        quickSort(0, arr.length() - 1);
+
+        done = true;
+    }
+
+    private void quickSort(int left, int right) throws InterruptedException {
+        final int len = right - left + 1;
+        if (len < INSERTION_SIZE) {
+            InsertionSorter.insertionSort(arr, step, left, right + 1);
+            return;
+        }
+
+        // Move the pivot candidates to the ends, smaller one on the left
+        final int third = len / 3;
+        step.acquire();  // Pause for the next step
+        arr.swap(left, left + third);
+        step.acquire();  // Pause for the next step
+        arr.swap(right, right - third);
+
+        step.acquire();  // Pause for the next step
+        if (arr.compare(left, right) > 0) {
+            step.acquire();  // Pause for the next step
+            arr.swap(left, right);
+        }
+
+        step.acquire();  // Pause for the next step
+        final T p = arr.get(left);
+        step.acquire();  // Pause for the next step
+        final T q = arr.get(right);
+
+        // [left+1, l) < p, [l, k) between, (g, right-1] > q
+        int l = left + 1;
+        int g = right - 1;
+        int k = l;
+
+        while (k <= g) {
+            step.acquire();  // Pause for the next step
+            if (arr.compare(k, p) < 0) {
+                step.acquire();  // Pause for the next step
+                arr.swap(k, l);
+                l++;
+            } else {
+                step.acquire();  // Pause for the next step
+                if (arr.compare(k, q) > 0) {
+                    // Find an element from the right that can go here
+                    step.acquire();  // Pause for the next step
+                    while (k < g && arr.compare(g, q) > 0) {
+                        g--;
+                        step.acquire();  // Pause for the next step
+                    }
+
+                    step.acquire();  // Pause for the next step
+                    arr.swap(k, g);
+                    g--;
+
+                    step.acquire();  // Pause for the next step
+                    if (arr.compare(k, p) < 0) {
+                        step.acquire();  // Pause for the next step
+                        arr.swap(k, l);
+                        l++;
+                    }
+                }
+            }
+            k++;
+        }
+        l--;
+        g++;
+
+        // Put the pivots between the parts
+        step.acquire();  // Pause for the next step
+        arr.swap(left, l);
+        step.acquire();  // Pause for the next step
+        arr.swap(right, g);
+
+        quickSort(left, l - 1);
+        step.acquire();  // Pause for the next step
+        if (arr.compare(l, q) < 0) {
+            // Unless the pivots are equal, sort the middle part too
+            quickSort(l + 1, g - 1);
+        }
+        quickSort(g + 1, right);
+    }
+}
@@ -0,0 +1,346 @@
+package run.mycode.sortdemo.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+import run.mycode.sortdemo.util.MappedIntArray;
+
+/**
+ * Perform an external merge sort on a DemoArray of ints, as is done for data
+ * too large to fit in memory. The array is read one memory budget's worth at
+ * a time into a scratch array, which is heap sorted and written out to a
+ * temporary file as a sorted run. The runs are then merged several at a
+ * time, using a priority queue of cursors into the run files, until a single
+ * merge can write the sorted data back into the array.
+ *
+ * Only arrays of ints (a DemoIntArray or a MappedIntArray) can be sorted,
+ * since the run files hold the elements as plain ints.
+ *
+ * Bytes read from and written to the run files are counted in the array's
+ * bytes read and bytes written counts, and each pass over the data is counted
+ * in its passes count. Comparisons between the cursors of a merge are made on
+ * values read from the files, outside any DemoArray, so they are not counted.
+ *
+ * @author bdahl
+ */
+public class ExternalMergeSorter extends SteppableSorter<Integer> {
+
+    public static final String NAME = "External Merge Sort";
+
+    // By default the memory budget is enough for this fraction of the array
+    private static final int DEFAULT_RUNS = 16;    // one in this many
+    private static final int MIN_BUDGET = 16;
+
+    private static final int DEFAULT_FAN_IN = 8;
+
+    private DemoIntArray tmp;   // the memory to sort runs in
+    private int budget;         // the number of elements that fit in memory
+    private int fanIn;          // the number of runs merged at once
+
+    private final List<Path> files; // run files not yet deleted
+
+    /**
+     * Prepare to external merge sort a DemoArray
+     *
+     * @param arr the array to sort
+     * @throws IllegalArgumentException if the array doesn't hold ints
+     */
+    public ExternalMergeSorter(DemoArray<Integer> arr) {
+        super(arr, NAME);
+
+        // A raw or unchecked caller may pass any DemoArray, catch it here
+        // rather than partway through the sort
+        if (!(arr instanceof DemoIntArray || arr instanceof MappedIntArray)) {
+            throw new IllegalArgumentException(NAME + " can only sort a "
+                    + "DemoIntArray or a MappedIntArray, not a "
+                    + arr.getClass().getSimpleName());
+        }
+
+        this.files = new ArrayList<>();
+        this.fanIn = DEFAULT_FAN_IN;
+        setMemoryBudget(Math.max(MIN_BUDGET,
+                (arr.length() + DEFAULT_RUNS - 1) / DEFAULT_RUNS));
+    }
+
+    /**
+     * Choose how many elements the sort may hold in memory at once, which is
+     * the length of each sorted run
+     *
+     * @param elements the number of elements that fit in memory
+     * @throws IllegalStateException if the sort has already started
+     */
+    public final void setMemoryBudget(int elements) {
+        if (started) {
+            throw new IllegalStateException("The sort has already started");
+        }
+        if (elements < 1) {
+            throw new IllegalArgumentException("The budget must be at least 1");
+        }
+
+        budget = elements;
+        tmp = new DemoIntArray(Math.min(elements, arr.length()));
+        tmp.setInstrumented(arr.isInstrumented());
+    }
+
+    /**
+     * Choose how many runs are merged at once
+     *
+     * @param runs the number of runs to merge at once
+     * @throws IllegalStateException if the sort has already started
+     */
+    public void setFanIn(int runs) {
+        if (started) {
+            throw new IllegalStateException("The sort has already started");
+        }
+        if (runs < 2) {
+            throw new IllegalArgumentException("At least 2 runs must merge");
+        }
+
+        fanIn = runs;
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<Integer> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        try {
+            List<Path> runs = makeRuns();
+            arr.countPass();
+
+            while (runs.size() > 1) {
+                final boolean last = runs.size() <= fanIn;
+                final List<Path> merged = new ArrayList<>();
+
+                for (int r = 0; r < runs.size(); r += fanIn) {
+                    final List<Path> group = runs.subList(r,
+                            Math.min(runs.size(), r + fanIn));
+
+                    if (last) {
+                        mergeIntoArray(group);
+                    } else if (group.size() == 1) {
+                        merged.add(group.get(0));  // Nothing to merge it with
+                    } else {
+                        merged.add(mergeIntoFile(group));
+                    }
+                }
+
+                for (Path run : runs) {
+                    if (!merged.contains(run)) {
+                        delete(run);
+                    }
+                }
+                runs = merged;
+                arr.countPass();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            for (Path run : new ArrayList<>(files)) {
+                delete(run);
+            }
+        }
+
+        done = true;
+    }
+
+    /**
+     * Sort the array one memory budget at a time, writing each sorted part
+     * out to a run file. If the whole array fits in memory it is sorted in
+     * place instead.
+     *
+     * @return the run files, in order
+     */
+    private List<Path> makeRuns() throws IOException, InterruptedException {
+        final int n = arr.length();
+        final List<Path> runs = new ArrayList<>();
+
+        for (int from = 0; from < n; from += budget) {
+            final int len = Math.min(budget, n - from);
+
+            for (int i = 0; i < len; i++) {
+                step.acquire();  // Pause for the next step
+                tmp.setInt(i, arr.getKey(from + i));
+            }
+
+            HeapSorter.heapSort(tmp, step, 0, len);
+
+            if (len == n) {
+                // Everything fit in memory, there is nothing to merge
+                for (int i = 0; i < len; i++) {
+                    step.acquire();  // Pause for the next step
+                    arr.set(i, tmp.removeInt(i));
+                }
+            } else {
+                runs.add(spill(len));
+            }
+        }
+
+        return runs;
+    }
+
+    /**
+     * Write the start of the scratch array out to a new run file
+     *
+     * @param len the number of elements to write
+     * @return the run file
+     */
+    private Path spill(int len) throws IOException, InterruptedException {
+        final Path run = createRunFile();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int i = 0; i < len; i++) {
+                step.acquire();  // Pause for the next step
+                out.writeInt(tmp.removeInt(i));
+                arr.countBytesWritten(Integer.BYTES);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merge several run files into a new, longer run file
+     *
+     * @param group the run files to merge
+     * @return the merged run file
+     */
+    private Path mergeIntoFile(List<Path> group)
+            throws IOException, InterruptedException {
+        final Path run = createRunFile();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run)))) {
+            merge(group, value -> {
+                out.writeInt(value);
+                arr.countBytesWritten(Integer.BYTES);
+            });
+        }
+        return run;
+    }
+
+    /**
+     * Merge the last run files back into the array
+     *
+     * @param group the run files to merge, holding every element
+     */
+    private void mergeIntoArray(List<Path> group)
+            throws IOException, InterruptedException {
+        final int[] next = {0};
+        merge(group, value -> arr.set(next[0]++, value));
+    }
+
+    /**
+     * Somewhere for merged elements to go
+     */
+    @FunctionalInterface
+    private interface Output {
+
+        void write(int value) throws IOException;
+    }
+
+    /**
+     * Merge several run files, always taking the smallest element at the
+     * front of any of the runs
+     *
+     * @param group the run files to merge
+     * @param out where to put the merged elements
+     */
+    private void merge(List<Path> group, Output out)
+            throws IOException, InterruptedException {
+        final List<RunCursor> opened = new ArrayList<>();
+        final PriorityQueue<RunCursor> cursors = new PriorityQueue<>(
+                group.size(), Comparator.<RunCursor>comparingInt(c -> c.value)
+                        .thenComparingInt(c -> c.run));
+
+        try {
+            for (int r = 0; r < group.size(); r++) {
+                final RunCursor c = new RunCursor(group.get(r), r);
+                opened.add(c);
+                if (c.advance()) {
+                    cursors.add(c);
+                }
+            }
+
+            while (!cursors.isEmpty()) {
+                final RunCursor c = cursors.poll();
+
+                step.acquire();  // Pause for the next step
+                out.write(c.value);
+
+                if (c.advance()) {
+                    cursors.add(c);
+                }
+            }
+        } finally {
+            for (RunCursor c : opened) {
+                c.in.close();
+            }
+        }
+    }
+
+    /**
+     * The position of a merge in one run file
+     */
+    private class RunCursor {
+
+        private final DataInputStream in;
+        private final int run;      // the order of the run in its merge
+        private long remaining;     // the elements left to read
+        private int value;          // the element at the front of the run
+
+        RunCursor(Path file, int run) throws IOException {
+            this.in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file)));
+            this.run = run;
+            this.remaining = Files.size(file) / Integer.BYTES;
+        }
+
+        /**
+         * Read the next element of the run
+         *
+         * @return false if the run has no elements left
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+
+            value = in.readInt();
+            remaining--;
+            arr.countBytesRead(Integer.BYTES);
+            return true;
+        }
+    }
+
+    private Path createRunFile() throws IOException {
+        final Path run = Files.createTempFile("sortdemo-run-", ".ints");
+        files.add(run);
+        return run;
+    }
+
+    private void delete(Path run) {
+        files.remove(run);
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException ex) {
+            run.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package run.mycode.sortdemo.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The gap sequences a shell sort can use, along with text descriptions
+ *
+ * @author bdahl
+ */
+public enum GapSequence {
+    SHELL("Shell"), KNUTH("Knuth"), SEDGEWICK("Sedgewick"), CIURA("Ciura"),
+    TOKUDA("Tokuda");
+
+    // Ciura's experimentally found gaps, extended by multiplying by 2.25
+    private static final int[] CIURA_GAPS = {1, 4, 10, 23, 57, 132, 301, 701};
+
+    public final String text;
+
+    private GapSequence(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    /**
+     * Get the gaps to sort an array with, largest first
+     *
+     * @param length the length of the array
+     * @return the gaps smaller than the length, ending with 1
+     */
+    public int[] gaps(int length) {
+        final List<Long> gaps = new ArrayList<>();
+
+        switch (this) {
+            case SHELL:
+                // n/2, n/4, ..., 1
+                for (long g = length / 2; g > 0; g /= 2) {
+                    gaps.add(g);
+                }
+                break;
+            case KNUTH:
+                // 1, 4, 13, 40, ... (3^k - 1) / 2, up to a third of the array
+                for (long g = 1; g == 1 || g <= length / 3; g = 3 * g + 1) {
+                    gaps.add(g);
+                }
+                break;
+            case SEDGEWICK:
+                // 1, 8, 23, 77, 281, ... 4^k + 3 * 2^(k-1) + 1
+                for (int k = 1; (1L << 2 * k) < length; k++) {
+                    gaps.add((1L << 2 * k) + 3 * (1L << k - 1) + 1);
+                }
+                break;
+            case CIURA:
+                for (int g : CIURA_GAPS) {
+                    gaps.add((long) g);
+                }
+                for (long g = CIURA_GAPS[CIURA_GAPS.length - 1] * 9 / 4;
+                        g < length; g = g * 9 / 4) {
+                    gaps.add(g);
+                }
+                break;
+            case TOKUDA:
+                // ceil(h) where h = 2.25 * h + 1, starting from 1
+                for (double h = 1; h < length; h = 2.25 * h + 1) {
+                    gaps.add((long) Math.ceil(h));
+                }
+                break;
+            default:
+                throw new AssertionError(this);
+        }
+
+        // Largest first, always ending with 1 and leaving out any gaps too
+        // big for the array
+        gaps.add(1L);
+        return gaps.stream()
+                .distinct()
+                .filter(g -> g == 1 || g < length)
+                .sorted((a, b) -> Long.compare(b, a))
+                .mapToInt(Long::intValue)
+                .toArray();
+    }
+}
@@ -24,22 +24,47 @@ public class HeapSorter<T extends Comparable<T>> extends SteppableSorter<T> {
 
     @Override
     protected void sort() throws InterruptedException {
-            int n = arr.length();
-            
-            for (int i = n / 2 - 1; i >= 0; i--) {
-                heapify(n, i);
-            }
-            
-            for (int i=n-1; i >= 0; i--) {
-                step.acquire();  // Pause for the next step
-                arr.swap(0, i);
-                
-                heapify(i, 0);
-            }
+        heapSort(arr, step, 0, arr.length());
+
         done = true;
     }
+
+    /**
+     * Heap sort a range of an array, so that other sorters can finish off a
+     * range this way
+     *
+     * @param <T> The type of data to sort
+     * @param arr the array to sort
+     * @param step the gate to wait on before each step
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @throws InterruptedException if the sort is interrupted
+     */
+    static <T extends Comparable<T>> void heapSort(DemoArray<T> arr,
+            StepGate step, int from, int to) throws InterruptedException {
+        int n = to - from;
+
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            heapify(arr, step, from, n, i);
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            step.acquire();  // Pause for the next step
+            arr.swap(from, from + i);
+
+            heapify(arr, step, from, i, 0);
+        }
+    }
     
-    private void heapify(int len, int root) 
+    /**
+     * Restore the heap below a node of a heap kept in a range of an array
+     *
+     * @param base the location in the array of the root of the heap
+     * @param len the number of elements in the heap
+     * @param root the node to restore the heap below, counted from base
+     */
+    private static <T extends Comparable<T>> void heapify(DemoArray<T> arr,
+            StepGate step, int base, int len, int root) 
             throws InterruptedException {
         int largest = root;
         int l = 2*root + 1; // left child
@@ -47,22 +72,23 @@ public class HeapSorter<T extends Comparable<T>> extends SteppableSorter<T> {
         
         // If the left child is > root
         step.acquire();  // Pause for the next step
-        if (l < len && arr.compare(l, largest) > 0) {
+        if (l < len && arr.compare(base + l, base + largest) > 0) {
             largest = l;
         }
         
         // If the right child is the greatest of the three
         step.acquire();  // Pause for the next step
-        if (r < len && arr.compare(r, largest) > 0) {
+        if (r < len && arr.compare(base + r, base + largest) > 0) {
             largest = r;
         }
         
         // If the largest isn't the root
         if (largest != root) {
             step.acquire();  // Pause for the next step
-            arr.swap(root, largest); // move the largest up
+            arr.swap(base + root, base + largest); // move the largest up
             
-            heapify(len, largest); // And heapify the child that was changed
+            // And heapify the child that was changed
+            heapify(arr, step, base, len, largest);
         }
     }
 }
@@ -14,6 +14,9 @@ public class InsertionSorter<T extends Comparable<T>>
 
     public static final String NAME = "Insertion Sort";    
 
+    // The largest array worth sorting, larger ones take far too long
+    public static final int MAX_SIZE = 10_000;
+
     /**
      * Prepare to insertion sort a DemoArray
      *
@@ -25,25 +28,59 @@ public class InsertionSorter<T extends Comparable<T>>
 
     @Override
     protected void sort() throws InterruptedException {
-        for (int i = 1; i < arr.length(); i++) {
+        insertionSort(arr, step, 0, arr.length());
+
+        done = true;
+    }
+
+    /**
+     * Insertion sort a range of an array, so that other sorters can finish
+     * off small ranges this way
+     *
+     * @param <T> The type of data to sort
+     * @param arr the array to sort
+     * @param step the gate to wait on before each step
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @throws InterruptedException if the sort is interrupted
+     */
+    static <T extends Comparable<T>> void insertionSort(DemoArray<T> arr,
+            StepGate step, int from, int to) throws InterruptedException {
+        insertionSort(arr, step, from, to, 1);
+    }
+
+    /**
+     * Insertion sort the elements of a range of an array that are a fixed
+     * gap apart, as each pass of a shell sort does
+     *
+     * @param <T> The type of data to sort
+     * @param arr the array to sort
+     * @param step the gate to wait on before each step
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @param gap the distance between the elements sorted together
+     * @throws InterruptedException if the sort is interrupted
+     */
+    static <T extends Comparable<T>> void insertionSort(DemoArray<T> arr,
+            StepGate step, int from, int to, int gap)
+            throws InterruptedException {
+        for (int i = from + gap; i < to; i++) {
 
             step.acquire();  // Pause for the next step
             T item = arr.remove(i);
 
-            int j = i - 1;
+            int j = i - gap;
 
             step.acquire();  // Pause for the next step
-            while (j >= 0 && arr.compare(j, item) > 0) {
+            while (j >= from && arr.compare(j, item) > 0) {
                 step.acquire();  // Pause for the next step
-                arr.move(j, j + 1);
-                j--;
+                arr.move(j, j + gap);
+                j -= gap;
                 step.acquire();  // Pause for the next step
             }
 
             step.acquire();  // Pause for the next step
-            arr.set(j + 1, item);
+            arr.set(j + gap, item);
         }
-
-        done = true;
     }
 }
@@ -0,0 +1,147 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform an introsort on a DemoArray. Ranges are quick sorted around the
+ * median of their first, middle and last elements, but once the recursion
+ * goes deeper than twice the log of the array's length the range is heap
+ * sorted instead, so the sort can never take quadratic time. Small ranges are
+ * insertion sorted.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class IntroSorter<T extends Comparable<T>> extends SteppableSorter<T> {
+
+    public static final String NAME = "Intro Sort";
+
+    // Ranges shorter than this are insertion sorted
+    private static final int INSERTION_SIZE = 16;
+
+    /**
+     * Prepare to introsort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public IntroSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        introSort(arr, step, 0, arr.length());
+
+        done = true;
+    }
+
+    /**
+     * Introsort a range of an array, so that other sorters can sort parts of
+     * an array this way
+     *
+     * @param <T> The type of data to sort
+     * @param arr the array to sort
+     * @param step the gate to wait on before each step
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @throws InterruptedException if the sort is interrupted
+     */
+    static <T extends Comparable<T>> void introSort(DemoArray<T> arr,
+            StepGate step, int from, int to) throws InterruptedException {
+        final int log = 31 - Integer.numberOfLeadingZeros(to - from);
+
+        introSort(arr, step, from, to, 2 * log);
+    }
+
+    /**
+     * Sort a range of an array
+     *
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @param depth the number of times the range may still be partitioned
+     *              before falling back to heap sort
+     */
+    private static <T extends Comparable<T>> void introSort(DemoArray<T> arr,
+            StepGate step, int from, int to, int depth)
+            throws InterruptedException {
+        while (to - from >= INSERTION_SIZE) {
+            if (depth == 0) {
+                HeapSorter.heapSort(arr, step, from, to);
+                return;
+            }
+            depth--;
+
+            final int split = partition(arr, step, from, to);
+
+            // Recurse into the smaller part and loop on the larger
+            if (split - from < to - split) {
+                introSort(arr, step, from, split, depth);
+                from = split;
+            } else {
+                introSort(arr, step, split, to, depth);
+                to = split;
+            }
+        }
+
+        InsertionSorter.insertionSort(arr, step, from, to);
+    }
+
+    /**
+     * Partition a range around the median of its first, middle and last
+     * elements
+     *
+     * @return the location where the range was split: everything before it
+     *         is no larger than everything from it on
+     */
+    private static <T extends Comparable<T>> int partition(DemoArray<T> arr,
+            StepGate step, int from, int to) throws InterruptedException {
+        final int mid = (from + to) >>> 1;
+        final int last = to - 1;
+
+        // Sort the three candidates, leaving the median in the middle
+        step.acquire();  // Pause for the next step
+        if (arr.compare(mid, from) < 0) {
+            step.acquire();  // Pause for the next step
+            arr.swap(mid, from);
+        }
+        step.acquire();  // Pause for the next step
+        if (arr.compare(last, mid) < 0) {
+            step.acquire();  // Pause for the next step
+            arr.swap(last, mid);
+            step.acquire();  // Pause for the next step
+            if (arr.compare(mid, from) < 0) {
+                step.acquire();  // Pause for the next step
+                arr.swap(mid, from);
+            }
+        }
+
+        step.acquire();  // Pause for the next step
+        final T pivot = arr.get(mid);
+
+        int i = from;
+        int j = last;
+        while (true) {
+            step.acquire();  // Pause for the next step
+            while (arr.compare(i, pivot) < 0) {
+                i++;
+                step.acquire();  // Pause for the next step
+            }
+
+            step.acquire();  // Pause for the next step
+            while (arr.compare(j, pivot) > 0) {
+                j--;
+                step.acquire();  // Pause for the next step
+            }
+
+            if (i >= j) {
+                return j + 1;
+            }
+
+            step.acquire();  // Pause for the next step
+            arr.swap(i, j);
+            i++;
+            j--;
+        }
+    }
+}
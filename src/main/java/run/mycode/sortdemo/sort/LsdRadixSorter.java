@@ -0,0 +1,95 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a least significant digit radix sort on a DemoArray. The counts of
+ * every digit are taken in a single pass over the array, then the elements
+ * are distributed into the scratch array and back by each digit in turn,
+ * starting from the least significant. Each distribution is stable, so after
+ * the last one the array is sorted. Digits that are the same for every
+ * element are skipped.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class LsdRadixSorter<T extends Comparable<T>> extends RadixSorter<T> {
+
+    public static final String NAME = "LSD Radix Sort";
+
+    /**
+     * Prepare to LSD radix sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public LsdRadixSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        final int n = arr.length();
+
+        // Count every digit of every key at once
+        int[][] counts = new int[DIGITS][BUCKETS];
+        int first = 0;
+        for (int i = 0; i < n; i++) {
+            step.acquire();  // Pause for the next step
+            int key = arr.getKey(i);
+            if (i == 0) {
+                first = key;
+            }
+            for (int d = 0; d < DIGITS; d++) {
+                countInto(counts[d], digit(key, d));
+            }
+        }
+
+        DemoArray<T> from = arr;
+        DemoArray<T> to = tmp;
+        for (int d = 0; d < DIGITS; d++) {
+            if (counts[d][digit(first, d)] == n) {
+                continue;  // Every element is in the same bucket
+            }
+
+            countsToStarts(counts[d], 0);
+            distribute(from, to, counts[d], d);
+
+            DemoArray<T> t = from;
+            from = to;
+            to = t;
+        }
+
+        // Finish with everything back in the array
+        if (from != arr) {
+            for (int i = 0; i < n; i++) {
+                step.acquire();  // Pause for the next step
+                arr.set(i, tmp.remove(i));
+            }
+        }
+
+        done = true;
+    }
+
+    /**
+     * Move every element into its bucket, keeping equal digits in order
+     *
+     * @param from the array to take the elements from
+     * @param to the array to put the elements into
+     * @param starts the location of the next element of each bucket
+     * @param d the digit to distribute by
+     */
+    private void distribute(DemoArray<T> from, DemoArray<T> to, int[] starts,
+            int d) throws InterruptedException {
+        for (int i = 0; i < from.length(); i++) {
+            step.acquire();  // Pause for the next step
+            T item = from.remove(i);
+            int b = digit(from.keyOf(item), d);
+
+            step.acquire();  // Pause for the next step
+            to.set(starts[b], item);
+            starts[b]++;
+            arr.countBucketWrite();
+        }
+    }
+}
@@ -23,7 +23,7 @@ public class MergeSorter<T extends Comparable<T>> extends SteppableSorter<T> {
     public MergeSorter(DemoArray<T> arr) {
         super(arr, NAME); 
         
-        this.tmp = new DemoArray<>(arr.length());
+        this.tmp = arr.createScratch(arr.length());
     }
 
     @Override
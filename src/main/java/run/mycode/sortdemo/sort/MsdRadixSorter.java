@@ -0,0 +1,112 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a most significant digit radix sort on a DemoArray. The elements
+ * of a range are distributed into the scratch array by their most significant
+ * digit and copied back, then each bucket is sorted by the next digit on its
+ * own. Buckets that hold every element of their range are not moved, and
+ * small buckets are insertion sorted.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class MsdRadixSorter<T extends Comparable<T>> extends RadixSorter<T> {
+
+    public static final String NAME = "MSD Radix Sort";
+
+    // Ranges shorter than this are insertion sorted
+    private static final int INSERTION_SIZE = 16;
+
+    /**
+     * Prepare to MSD radix sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public MsdRadixSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        radixSort(0, arr.length(), DIGITS - 1);
+
+        done = true;
+    }
+
+    /**
+     * Sort a range of the array whose keys are the same above a digit
+     *
+     * @param from the first location in the range
+     * @param to one past the last location in the range
+     * @param d the most significant digit that may differ in the range
+     */
+    private void radixSort(int from, int to, int d)
+            throws InterruptedException {
+        if (to - from < INSERTION_SIZE) {
+            InsertionSorter.insertionSort(arr, step, from, to);
+            return;
+        }
+
+        int[] counts = new int[BUCKETS];
+        for (int i = from; i < to; i++) {
+            step.acquire();  // Pause for the next step
+            countInto(counts, digit(arr.getKey(i), d));
+        }
+
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] == to - from) {
+                // Every element is in the same bucket, nothing to move
+                if (d > 0) {
+                    radixSort(from, to, d - 1);
+                }
+                return;
+            }
+        }
+
+        countsToStarts(counts, from);
+        distribute(from, to, counts, d);
+
+        if (d == 0) {
+            return;
+        }
+
+        // Distributing moved each start to the end of its bucket
+        int start = from;
+        for (int b = 0; b < BUCKETS; b++) {
+            int end = counts[b];
+            if (end - start > 1) {
+                radixSort(start, end, d - 1);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Move every element of a range into its bucket in the scratch array,
+     * then copy the range back
+     *
+     * @param starts the location of the next element of each bucket, left
+     *               at the end of each bucket
+     */
+    private void distribute(int from, int to, int[] starts, int d)
+            throws InterruptedException {
+        for (int i = from; i < to; i++) {
+            step.acquire();  // Pause for the next step
+            T item = arr.remove(i);
+            int b = digit(arr.keyOf(item), d);
+
+            step.acquire();  // Pause for the next step
+            tmp.set(starts[b], item);
+            starts[b]++;
+            arr.countBucketWrite();
+        }
+
+        for (int i = from; i < to; i++) {
+            step.acquire();  // Pause for the next step
+            arr.set(i, tmp.remove(i));
+        }
+    }
+}
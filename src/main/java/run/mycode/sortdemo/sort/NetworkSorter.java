@@ -0,0 +1,105 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * The common parts of the sorting network sorts. A sorting network is a fixed
+ * series of stages, each a set of compare-exchange operations on pairs of
+ * locations that don't overlap, so every operation in a stage can be done at
+ * the same time. Each stage is split across a pool of worker threads and
+ * takes a single step, then the workers wait for the whole stage to finish
+ * before the next one begins.
+ *
+ * Networks are described for arrays whose length is a power of two. Other
+ * lengths are sorted as if the array were padded with elements larger than
+ * any in it, which never move, so comparisons with them are skipped.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public abstract class NetworkSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    private final String name;
+
+    private int grain;  // stages are split into parts about this size
+
+    /**
+     * The compare-exchange operations of one stage of a network
+     */
+    @FunctionalInterface
+    protected interface Stage {
+
+        /**
+         * Find the location an element is compared with in this stage
+         *
+         * @param index the location of the element
+         * @return the larger location of the pair the element is part of, or
+         *         a location no larger than index if the smaller location of
+         *         the pair is elsewhere or the element is not compared
+         */
+        int partner(int index);
+    }
+
+    /**
+     * Prepare to sort a DemoArray with a sorting network
+     *
+     * @param arr the array to sort
+     * @param name the name of the sort
+     */
+    protected NetworkSorter(DemoArray<T> arr, String name) {
+        super(arr, name);
+
+        this.name = name;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        // Split into a few parts per worker, so idle workers can steal some
+        grain = Math.max(1, arr.length() / (SorterThreads.workerCount() * 4));
+
+        SorterThreads.runParallel(step, name, this::sortNetwork);
+
+        done = true;
+    }
+
+    /**
+     * Run each stage of the network in turn with runStage
+     */
+    protected abstract void sortNetwork() throws InterruptedException;
+
+    /**
+     * Perform one stage of the network as a single step, waiting for every
+     * compare-exchange in it to finish
+     *
+     * @param stage the operations of the stage
+     */
+    protected void runStage(Stage stage) throws InterruptedException {
+        step.acquire();  // Pause for the next step
+        exchange(0, arr.length(), stage);
+    }
+
+    /**
+     * Perform the compare-exchange operations of a stage whose smaller
+     * location is in a range, splitting large ranges between workers
+     *
+     * @param beg the first location in the range
+     * @param end one past the last location in the range
+     */
+    private void exchange(int beg, int end, Stage stage) {
+        if (end - beg > grain) {
+            final int m = (beg + end) >>> 1;
+            SorterThreads.both(() -> exchange(beg, m, stage),
+                    () -> exchange(m, end, stage));
+            return;
+        }
+
+        for (int i = beg; i < end; i++) {
+            final int j = stage.partner(i);
+            if (j > i && j < arr.length() && arr.compare(i, j) > 0) {
+                arr.swap(i, j);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform Batcher's odd-even merge sort on a DemoArray with a sorting
+ * network. Sorted blocks are merged in pairs by first merging their
+ * even-numbered and odd-numbered elements, then comparing neighbors. Unrolled
+ * into stages, each merge compares elements a decreasing distance apart
+ * within the pair of blocks. It uses fewer comparisons than a bitonic sort in
+ * the same number of stages.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class OddEvenMergeSorter<T extends Comparable<T>>
+        extends NetworkSorter<T> {
+
+    public static final String NAME = "Odd-Even Merge Sort";
+
+    /**
+     * Prepare to odd-even merge sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public OddEvenMergeSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sortNetwork() throws InterruptedException {
+        final int n = arr.length();
+
+        // Merge sorted blocks of size p into blocks of size 2p
+        for (int p = 1; p < n; p *= 2) {
+            final int block = 2 * p;
+
+            for (int k = p; k > 0; k /= 2) {
+                final int dist = k;
+                final int first = k % p;
+
+                // Compare the first dist elements of every group of 2 * dist
+                // from first on with the element dist after them, if both are
+                // in the same pair of blocks
+                runStage(i -> i >= first && (i - first) % (2 * dist) < dist
+                        && i / block == (i + dist) / block ? i + dist : -1);
+            }
+        }
+    }
+}
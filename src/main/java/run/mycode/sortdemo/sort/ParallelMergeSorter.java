@@ -0,0 +1,201 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a merge sort on a DemoArray, splitting the work across a pool of
+ * worker threads. The two halves of each large range are sorted at the same
+ * time, and large merges are split in two by finding where the middle element
+ * of the longer run belongs in the other run, so that several merges are
+ * running at once all the way up to the last one.
+ *
+ * Each worker only touches its own ranges of the array and the scratch
+ * array, and every worker waits on the same step gate, so interrupting the
+ * sort stops all of them.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class ParallelMergeSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    public static final String NAME = "Parallel Merge Sort";
+
+    private final DemoArray<T> tmp; // a scratch array to work in
+
+    private int grain;  // ranges this size or smaller are not split
+
+    /**
+     * Prepare to parallel merge sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public ParallelMergeSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        this.tmp = arr.createScratch(arr.length());
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        // Split into a few ranges per worker, so idle workers can steal some
+        grain = Math.max(1, arr.length() / (SorterThreads.workerCount() * 4));
+
+        SorterThreads.runParallel(step, NAME, () -> mergeSort(0, arr.length()));
+
+        done = true;
+    }
+
+    /**
+     * Sort a range of the array
+     *
+     * @param beg the first location in the range
+     * @param end one past the last location in the range
+     */
+    private void mergeSort(int beg, int end) throws InterruptedException {
+        if (end - beg < 2) {
+            return;
+        }
+
+        int m = (beg + end) >>> 1;
+
+        if (end - beg > grain) {
+            SorterThreads.both(() -> sortToScratch(beg, m),
+                    () -> sortToScratch(m, end));
+        } else {
+            sortToScratch(beg, m);
+            sortToScratch(m, end);
+        }
+
+        merge(beg, m, m, end, beg);
+    }
+
+    /**
+     * Sort a range of the array, then move it into the same locations in the
+     * scratch array, ready to be merged
+     *
+     * @param beg the first location in the range
+     * @param end one past the last location in the range
+     */
+    private void sortToScratch(int beg, int end) throws InterruptedException {
+        mergeSort(beg, end);
+
+        for (int i = beg; i < end; i++) {
+            step.acquire();     // Pause for the next step
+            tmp.set(i, arr.get(i));
+        }
+    }
+
+    /**
+     * Merge two sorted runs of the scratch array back into the array
+     *
+     * @param lo1 the first location of the first run
+     * @param hi1 one past the last location of the first run
+     * @param lo2 the first location of the second run
+     * @param hi2 one past the last location of the second run
+     * @param dest the location in the array to merge into
+     */
+    private void merge(int lo1, int hi1, int lo2, int hi2, int dest)
+            throws InterruptedException {
+        final int n1 = hi1 - lo1;
+        final int n2 = hi2 - lo2;
+
+        if (n1 + n2 <= grain || n1 == 0 || n2 == 0) {
+            mergeInOrder(lo1, hi1, lo2, hi2, dest);
+            return;
+        }
+
+        // Find where the middle of the longer run belongs in the other run.
+        // Equal elements from the first run stay ahead of those from the
+        // second, so the sort is stable.
+        final int mid1;
+        final int mid2;
+        final int pivot;
+        if (n1 >= n2) {
+            pivot = mid1 = (lo1 + hi1) >>> 1;
+            mid2 = search(lo2, hi2, pivot, false);
+        } else {
+            pivot = mid2 = (lo2 + hi2) >>> 1;
+            mid1 = search(lo1, hi1, pivot, true);
+        }
+
+        // Everything before the split in both runs goes ahead of the pivot
+        final int at = dest + (mid1 - lo1) + (mid2 - lo2);
+        step.acquire();     // Pause for the next step
+        arr.set(at, tmp.remove(pivot));
+
+        final int next1 = n1 >= n2 ? mid1 + 1 : mid1;
+        final int next2 = n1 >= n2 ? mid2 : mid2 + 1;
+        SorterThreads.both(() -> merge(lo1, mid1, lo2, mid2, dest),
+                () -> merge(next1, hi1, next2, hi2, at + 1));
+    }
+
+    /**
+     * Merge two sorted runs of the scratch array back into the array, one
+     * element at a time
+     */
+    private void mergeInOrder(int lo1, int hi1, int lo2, int hi2, int dest)
+            throws InterruptedException {
+        int i = lo1;
+        int j = lo2;
+        int k = dest;
+
+        while (i < hi1 && j < hi2) {
+            step.acquire();  // Pause for the next step
+            if (tmp.compare(j, i) < 0) {
+                step.acquire();  // Pause for the next step
+                arr.set(k++, tmp.remove(j++));
+            } else {
+                step.acquire();  // Pause for the next step
+                arr.set(k++, tmp.remove(i++));
+            }
+        }
+
+        while (i < hi1) {
+            step.acquire();  // Pause for the next step
+            arr.set(k++, tmp.remove(i++));
+        }
+
+        while (j < hi2) {
+            step.acquire();  // Pause for the next step
+            arr.set(k++, tmp.remove(j++));
+        }
+    }
+
+    /**
+     * Binary search a sorted run of the scratch array for where an element
+     * belongs
+     *
+     * @param lo the first location of the run
+     * @param hi one past the last location of the run
+     * @param key the location of the element in the scratch array
+     * @param after true to find the location after any equal elements, false
+     *              to find the location before them
+     * @return the location in the run where the element belongs
+     */
+    private int search(int lo, int hi, int key, boolean after)
+            throws InterruptedException {
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            step.acquire();  // Pause for the next step
+            int c = tmp.compare(m, key);
+            if (c < 0 || (after && c == 0)) {
+                lo = m + 1;
+            } else {
+                hi = m;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,83 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a quick sort on a DemoArray, splitting the work across a pool of
+ * worker threads. Each range is partitioned the same way as QuickSorter, and
+ * then the two partitions are sorted at the same time if they are large
+ * enough to be worth handing to another worker. Smaller partitions are sorted
+ * by the worker that made them.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class ParallelQuickSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    public static final String NAME = "Parallel Quick Sort";
+
+    private int grain;  // ranges this size or smaller are not split
+
+    public ParallelQuickSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        // Split into a few ranges per worker, so idle workers can steal some
+        grain = Math.max(1, arr.length() / (SorterThreads.workerCount() * 4));
+
+        SorterThreads.runParallel(step, NAME,
+                () -> quickSort(0, arr.length() - 1));
+
+        done = true;
+    }
+
+    private void quickSort(int beg, int end) throws InterruptedException {
+        int i = beg;
+        int j = end;
+
+        step.acquire();  // Pause for the next step
+        T pivot = arr.get((i + j) / 2);
+
+        while (i <= j) {
+            step.acquire();  // Pause for the next step
+            while (arr.compare(i, pivot) < 0) {
+                i++;
+                step.acquire();  // Pause for the next step
+            }
+
+            step.acquire();  // Pause for the next step
+            while (arr.compare(j, pivot) > 0) {
+                j--;
+                step.acquire();  // Pause for the next step
+            }
+
+            if (i <= j) {
+                step.acquire();  // Pause for the next step
+                arr.swap(i, j);
+                i++;
+                j--;
+            }
+        }
+
+        final int left = j;
+        final int right = i;
+
+        if (beg < left && right < end && end - beg > grain) {
+            // Both partitions are left to sort, let another worker take one
+            SorterThreads.both(() -> quickSort(beg, left),
+                    () -> quickSort(right, end));
+            return;
+        }
+
+        if (beg < left) {
+            quickSort(beg, left);
+        }
+        if (right < end) {
+            quickSort(right, end);
+        }
+    }
+}
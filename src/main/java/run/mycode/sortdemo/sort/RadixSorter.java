@@ -0,0 +1,88 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * The common parts of the radix sorts. Elements are distributed into buckets
+ * by one 8-bit digit of their integer key at a time, using a table of bucket
+ * counts and a scratch array the same size as the array, and are never
+ * compared with each other. Keys are read with DemoArray.getKey, so the array
+ * must be able to find the key of its elements.
+ *
+ * Every write to a bucket table is counted with DemoArray.countBucketWrite.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public abstract class RadixSorter<T extends Comparable<T>>
+        extends SteppableSorter<T> {
+
+    // The number of bits in each digit, and the number of buckets they make
+    static final int DIGIT_BITS = 8;
+    static final int BUCKETS = 1 << DIGIT_BITS;
+
+    // The number of digits in a key
+    static final int DIGITS = Integer.SIZE / DIGIT_BITS;
+
+    protected final DemoArray<T> tmp; // a scratch array to distribute into
+
+    /**
+     * Prepare to radix sort a DemoArray
+     *
+     * @param arr the array to sort
+     * @param name the name of the sort
+     */
+    protected RadixSorter(DemoArray<T> arr, String name) {
+        super(arr, name);
+
+        this.tmp = arr.createScratch(arr.length());
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    /**
+     * Get one digit of a key. The sign bit of the key is flipped first, so
+     * negative keys come before positive ones.
+     *
+     * @param key the key
+     * @param digit which digit to get, 0 for the least significant
+     * @return the digit, from 0 to BUCKETS - 1
+     */
+    static int digit(int key, int digit) {
+        return ((key ^ Integer.MIN_VALUE) >>> (digit * DIGIT_BITS))
+                & (BUCKETS - 1);
+    }
+
+    /**
+     * Add one to the count of a bucket
+     */
+    protected void countInto(int[] counts, int bucket) {
+        counts[bucket]++;
+        arr.countBucketWrite();
+    }
+
+    /**
+     * Turn a table of bucket counts into the location each bucket starts at
+     *
+     * @param counts the number of elements in each bucket, replaced by the
+     *               starting locations
+     * @param start the location of the first bucket
+     */
+    protected void countsToStarts(int[] counts, int start) {
+        for (int b = 0; b < BUCKETS; b++) {
+            int count = counts[b];
+            counts[b] = start;
+            arr.countBucketWrite();
+            start += count;
+        }
+    }
+}
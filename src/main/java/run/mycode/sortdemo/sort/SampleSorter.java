@@ -0,0 +1,260 @@
+package run.mycode.sortdemo.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a sample sort on a DemoArray, splitting the work across a pool of
+ * worker threads, as sorts of very large data sets across many processors
+ * or machines do. The sort runs in four phases:
+ *
+ * sample: a random sample of the array is sorted in the scratch array, and
+ * evenly spaced elements of it are picked as splitters between buckets.
+ *
+ * classify: the array is cut into one chunk per worker, and each worker finds
+ * the bucket of every element in its chunk by binary searching the splitters,
+ * then copies the chunk into the same place in the scratch array grouped by
+ * bucket, so each worker fills its own private part of each bucket.
+ *
+ * scatter: a prefix sum of the bucket counts gives the location of each
+ * worker's part of each bucket in the array, and the parts are moved back from
+ * the scratch array, with each bucket moved by a single worker.
+ *
+ * local sort: the buckets are introsorted in place, in parallel.
+ *
+ * Each phase is timed (see getPhaseNanos), and writes to the bucket count
+ * tables are counted as bucket writes, like the radix sorts.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class SampleSorter<T extends Comparable<T>> extends SteppableSorter<T> {
+
+    public static final String NAME = "Sample Sort";
+
+    // Buckets for each worker, so uneven buckets still share out evenly
+    private static final int BUCKETS_PER_WORKER = 4;
+
+    // Elements sampled for each bucket, the more the more even the buckets
+    private static final int OVERSAMPLE = 8;
+
+    // A fixed seed, so the same data is always split the same way
+    private static final long SEED = 42;
+
+    private final DemoArray<T> tmp; // a scratch array to work in
+
+    private int chunks;         // the number of chunks classified in parallel
+    private int buckets;        // the number of buckets
+    private List<T> splitters;  // the first element of every bucket but one
+
+    private int[] labels;       // the bucket of each element
+    private int[][] starts;     // the start of each bucket in each chunk
+    private int[][] counts;     // the size of each bucket in each chunk
+    private int[] bucketStarts; // the start of each bucket in the array
+
+    /**
+     * Prepare to sample sort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public SampleSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        this.tmp = arr.createScratch(arr.length());
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        final int n = arr.length();
+        chunks = Math.min(SorterThreads.workerCount(), n);
+        buckets = Math.min(chunks * BUCKETS_PER_WORKER, n);
+
+        labels = new int[n];
+        starts = new int[chunks][];
+        counts = new int[chunks][];
+        bucketStarts = new int[buckets + 1];
+
+        SorterThreads.runParallel(step, NAME, () -> {
+            beginPhase("sample");
+            sample();
+
+            beginPhase("classify");
+            forEach(0, chunks, this::classify);
+
+            beginPhase("scatter");
+            findBucketStarts();
+            forEach(0, buckets, this::scatter);
+
+            beginPhase("local_sort");
+            forEach(0, buckets, b -> IntroSorter.introSort(arr, step,
+                    bucketStarts[b], bucketStarts[b + 1]));
+        });
+
+        done = true;
+    }
+
+    /**
+     * A part of a phase that works on one chunk or bucket
+     */
+    @FunctionalInterface
+    private interface Part {
+
+        void run(int index) throws InterruptedException;
+    }
+
+    /**
+     * Run a part of a phase for every chunk or bucket in a range at the same
+     * time, waiting for all of them to finish. Must be called by a worker.
+     *
+     * @param from the first chunk or bucket
+     * @param to one past the last chunk or bucket
+     * @param part the work to do for each one
+     */
+    private void forEach(int from, int to, Part part)
+            throws InterruptedException {
+        if (to - from == 1) {
+            part.run(from);
+        } else if (to > from) {
+            final int mid = (from + to) >>> 1;
+            SorterThreads.both(() -> forEach(from, mid, part),
+                    () -> forEach(mid, to, part));
+        }
+    }
+
+    /**
+     * Sort a random sample of the array in the scratch array and pick evenly
+     * spaced elements of it as the splitters
+     */
+    private void sample() throws InterruptedException {
+        final int n = arr.length();
+        final int size = Math.min(n, buckets * OVERSAMPLE);
+        final Random random = new Random(SEED);
+
+        for (int i = 0; i < size; i++) {
+            step.acquire();  // Pause for the next step
+            tmp.set(i, arr.get(random.nextInt(n)));
+        }
+
+        HeapSorter.heapSort(tmp, step, 0, size);
+
+        splitters = new ArrayList<>(buckets - 1);
+        for (int b = 1; b < buckets; b++) {
+            step.acquire();  // Pause for the next step
+            splitters.add(tmp.get((int) ((long) b * size / buckets)));
+        }
+    }
+
+    /**
+     * Find the bucket of each element in a chunk of the array, then copy the
+     * chunk into the scratch array grouped by bucket
+     *
+     * @param c the chunk to classify
+     */
+    private void classify(int c) throws InterruptedException {
+        final int from = chunkStart(c);
+        final int to = chunkStart(c + 1);
+        final int[] count = new int[buckets];
+
+        for (int i = from; i < to; i++) {
+            final int b = bucketOf(i);
+            labels[i] = b;
+            count[b]++;
+            arr.countBucketWrite();
+        }
+
+        final int[] start = new int[buckets];
+        int next = from;
+        for (int b = 0; b < buckets; b++) {
+            start[b] = next;
+            arr.countBucketWrite();
+            next += count[b];
+        }
+        counts[c] = count;
+        starts[c] = start.clone();
+
+        for (int i = from; i < to; i++) {
+            step.acquire();  // Pause for the next step
+            tmp.set(start[labels[i]]++, arr.get(i));
+        }
+    }
+
+    /**
+     * Find the bucket an element belongs in: the number of splitters no
+     * larger than it, so equal elements always share a bucket
+     *
+     * @param index the location of the element in the array
+     * @return the element's bucket
+     */
+    private int bucketOf(int index) throws InterruptedException {
+        int lo = 0;
+        int hi = splitters.size();
+        while (lo < hi) {
+            final int m = (lo + hi) >>> 1;
+            step.acquire();  // Pause for the next step
+            if (arr.compare(index, splitters.get(m)) < 0) {
+                hi = m;
+            } else {
+                lo = m + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Total the size of each bucket across the chunks to find where each
+     * bucket starts in the array
+     */
+    private void findBucketStarts() {
+        int next = 0;
+        for (int b = 0; b < buckets; b++) {
+            bucketStarts[b] = next;
+            arr.countBucketWrite();
+            for (int c = 0; c < chunks; c++) {
+                next += counts[c][b];
+            }
+        }
+        bucketStarts[buckets] = next;
+    }
+
+    /**
+     * Move every chunk's part of a bucket from the scratch array into the
+     * bucket's place in the array
+     *
+     * @param b the bucket to scatter
+     */
+    private void scatter(int b) throws InterruptedException {
+        int dest = bucketStarts[b];
+        for (int c = 0; c < chunks; c++) {
+            final int from = starts[c][b];
+            final int to = from + counts[c][b];
+            for (int i = from; i < to; i++) {
+                step.acquire();  // Pause for the next step
+                arr.set(dest++, tmp.remove(i));
+            }
+        }
+    }
+
+    /**
+     * Find where a chunk of the array starts
+     *
+     * @param c the chunk, or the number of chunks to find the end of the
+     *          array
+     * @return the first location in the chunk
+     */
+    private int chunkStart(int c) {
+        return (int) ((long) arr.length() * c / chunks);
+    }
+}
@@ -17,6 +17,9 @@ public class SelectionSorter<T extends Comparable<T>>
         extends SteppableSorter<T> {
 
     public static final String NAME = "Selection Sort";
+
+    // The largest array worth sorting, larger ones take far too long
+    public static final int MAX_SIZE = 10_000;
     
     /**
      * Prepare to selection sort a DemoArray
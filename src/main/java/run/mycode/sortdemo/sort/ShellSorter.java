@@ -0,0 +1,64 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a shell sort on a DemoArray. The array is insertion sorted several
+ * times, first comparing elements a large gap apart, so that elements far
+ * from their place move quickly, then with smaller and smaller gaps until
+ * the last pass, a plain insertion sort, has little left to do. How fast it
+ * runs depends on the sequence of gaps, which can be changed before the sort
+ * starts.
+ *
+ * @param <T> The type of data to sort
+ *
+ * @author bdahl
+ */
+public class ShellSorter<T extends Comparable<T>> extends SteppableSorter<T> {
+
+    public static final String NAME = "Shell Sort";
+
+    private volatile GapSequence gaps;
+
+    /**
+     * Prepare to shell sort a DemoArray, using Ciura's gap sequence
+     *
+     * @param arr the array to sort
+     */
+    public ShellSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        this.gaps = GapSequence.CIURA;
+    }
+
+    /**
+     * Choose the gap sequence to sort with
+     *
+     * @param gaps the gap sequence
+     * @throws IllegalStateException if the sort has already started
+     */
+    public void setGapSequence(GapSequence gaps) {
+        if (started) {
+            throw new IllegalStateException("The sort has already started");
+        }
+        this.gaps = gaps;
+    }
+
+    /**
+     * Get the gap sequence the sort uses
+     *
+     * @return the gap sequence
+     */
+    public GapSequence getGapSequence() {
+        return gaps;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        for (int gap : gaps.gaps(arr.length())) {
+            InsertionSorter.insertionSort(arr, step, 0, arr.length(), gap);
+        }
+
+        done = true;
+    }
+}
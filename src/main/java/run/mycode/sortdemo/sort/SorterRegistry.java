@@ -0,0 +1,101 @@
+package run.mycode.sortdemo.sort;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.reflections.Reflections;
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Finds the sorting algorithms available in this package and creates sorters
+ * from them
+ *
+ * @author bdahl
+ */
+@SuppressWarnings("rawtypes")
+public final class SorterRegistry {
+
+    private SorterRegistry() {
+    }
+
+    /**
+     * Find every public, concrete SteppableSorter subclass. Anonymous and
+     * other non-public subclasses, such as those made by tests, are skipped.
+     *
+     * @return the sorter classes, keyed and ordered by their display names
+     */
+    public static Map<String, Class<? extends SteppableSorter>> findSorters() {
+        Reflections reflections = new Reflections("run.mycode.sortdemo");
+        Set<Class<? extends SteppableSorter>> classes
+                = reflections.getSubTypesOf(SteppableSorter.class);
+
+        Map<String, Class<? extends SteppableSorter>> sorters = new TreeMap<>();
+        classes.forEach(c -> {
+            if (Modifier.isPublic(c.getModifiers())
+                    && !Modifier.isAbstract(c.getModifiers())) {
+                sorters.put(nameOf(c), c);
+            }
+        });
+
+        return sorters;
+    }
+
+    /**
+     * Get the display name of a sorter class, taken from its NAME field
+     *
+     * @param sortClass the sorter class
+     * @return the value of the NAME field, or the class name if it has none
+     */
+    public static String nameOf(Class<?> sortClass) {
+        try {
+            Field nameField = sortClass.getField("NAME");
+            return (String) nameField.get(null);
+        } catch (IllegalArgumentException | IllegalAccessException
+                | NoSuchFieldException | SecurityException ex) {
+            return sortClass.getSimpleName();
+        }
+    }
+
+    /**
+     * Get the largest array a sorter class is worth running on, taken from
+     * its MAX_SIZE field. Only the slowest sorters have one.
+     *
+     * @param sortClass the sorter class
+     * @return the value of the MAX_SIZE field, or Integer.MAX_VALUE if it has
+     *         none
+     */
+    public static int maxSize(Class<?> sortClass) {
+        try {
+            Field sizeField = sortClass.getField("MAX_SIZE");
+            return sizeField.getInt(null);
+        } catch (IllegalArgumentException | IllegalAccessException
+                | NoSuchFieldException | SecurityException ex) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Create a sorter to sort an array
+     *
+     * @param <T> the type of data to sort
+     * @param sortClass the sorter class, which must have a public constructor
+     *                  taking a DemoArray
+     * @param arr the array to sort
+     * @return a new sorter, ready to sort the array
+     * @throws IllegalArgumentException if the sorter can't be created
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> SteppableSorter<T> create(
+            Class<? extends SteppableSorter> sortClass, DemoArray<T> arr) {
+        try {
+            return sortClass.getConstructor(DemoArray.class).newInstance(arr);
+        } catch (NoSuchMethodException | InstantiationException
+                | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalArgumentException("Can't create a "
+                    + sortClass.getSimpleName(), ex);
+        }
+    }
+}
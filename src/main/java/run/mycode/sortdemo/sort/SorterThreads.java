@@ -0,0 +1,165 @@
+package run.mycode.sortdemo.sort;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Runs sorting algorithms in the background. When the Java runtime supports
+ * virtual threads each sort runs on its own virtual thread, so paused sorts
+ * hold no operating system threads. Otherwise sorts run on a shared pool of
+ * daemon threads that are reused from one sort to the next.
+ *
+ * @author bdahl
+ */
+final class SorterThreads {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private SorterThreads() {
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21+, looked up by reflection to still run on older runtimes
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "sorter-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Begin running a task in the background
+     *
+     * @param task the task to run
+     * @param name the name to give the thread while it runs the task
+     * @return a Future that can be used to cancel the task
+     */
+    static Future<?> start(Runnable task, String name) {
+        return EXECUTOR.submit(() -> {
+            final Thread current = Thread.currentThread();
+            final String oldName = current.getName();
+            current.setName(name);
+            try {
+                task.run();
+            } finally {
+                current.setName(oldName);
+            }
+        });
+    }
+
+    /**
+     * A part of a sort that can be run by any worker thread
+     */
+    interface Work {
+
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Get the number of worker threads a parallel sort is split across
+     *
+     * @return the number of workers, one per processor
+     */
+    static int workerCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Run a sort that splits its work across several threads, waiting for it
+     * to finish. Each sort gets its own pool of workers, so workers paused
+     * waiting for steps never hold up another sort. If a worker fails the
+     * sort's gate is cancelled, so the other workers waiting for steps wake
+     * and stop, and the failure is rethrown.
+     *
+     * @param gate the gate the sort's workers wait for steps at
+     * @param name the name of the sort, used to name the worker threads
+     * @param work the sort, which may split into more parts with both()
+     * @throws InterruptedException if a worker was interrupted
+     */
+    static void runParallel(StepGate gate, String name, Work work)
+            throws InterruptedException {
+        final ForkJoinPool pool = newWorkerPool(name);
+        try {
+            pool.invoke(task(work));
+        } catch (CompletionException ex) {
+            throw new InterruptedException();
+        } catch (RuntimeException | Error ex) {
+            gate.cancel();
+            throw ex;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run two parts of a parallel sort at the same time, waiting for both to
+     * finish. Must be called by a worker.
+     *
+     * @param first one part of the sort
+     * @param second the other part of the sort
+     */
+    static void both(Work first, Work second) {
+        ForkJoinTask.invokeAll(task(first), task(second));
+    }
+
+    /**
+     * Wrap a part of a sort in a task for the workers. A worker interrupted
+     * while waiting for a step completes its task with a
+     * CompletionException, which ends the whole sort.
+     *
+     * @param work the part of the sort to perform
+     * @return a task performing the work
+     */
+    private static ForkJoinTask<Void> task(Work work) {
+        return new RecursiveAction() {
+            @Override
+            protected void compute() {
+                try {
+                    work.run();
+                } catch (InterruptedException ex) {
+                    throw new CompletionException(ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a pool of daemon worker threads, one per processor. The workers
+     * are numbered from 1, so that their operations can be told apart.
+     *
+     * @param name the name of the sort, used to name the worker threads
+     * @return a new pool of worker threads
+     */
+    private static ForkJoinPool newWorkerPool(String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ForkJoinPool(workerCount(),
+                pool -> new ForkJoinWorkerThread(pool) {
+                    private final int number = count.incrementAndGet();
+
+                    {
+                        setName(name + "-worker-" + number);
+                    }
+
+                    @Override
+                    protected void onStart() {
+                        super.onStart();
+                        DemoArray.setWorkerNumber(number);
+                    }
+                }, null, false);
+    }
+}
@@ -0,0 +1,158 @@
+package run.mycode.sortdemo.sort;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Controls the speed of a sort. Each call to acquire() waits for a step to be
+ * released by the UI, letting the sorting algorithm run one step at a time.
+ * Once the gate is opened acquire() no longer waits, and the sort runs at full
+ * speed.
+ *
+ * Waiting threads are parked rather than blocked on a lock, so a sorter
+ * running on a virtual thread gives up its carrier thread while paused.
+ *
+ * @author bdahl
+ */
+public class StepGate {
+
+    private static final int GATED = 0;
+    private static final int OPEN = 1;
+    private static final int CANCELLED = 2;
+
+    private final AtomicLong permits;
+    private final Queue<Thread> waiters;
+    private volatile int state;
+
+    /**
+     * Create a gate with no steps released
+     */
+    StepGate() {
+        permits = new AtomicLong(0);
+        waiters = new ConcurrentLinkedQueue<>();
+        state = GATED;
+    }
+
+    /**
+     * Wait for the next step to be released
+     *
+     * @throws InterruptedException if the sort was interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        // A single read is all an open gate costs
+        final int s = state;
+        if (s == OPEN) {
+            return;
+        }
+        if (s == CANCELLED) {
+            throw new InterruptedException();
+        }
+
+        if (tryAcquire()) {
+            return;
+        }
+
+        final Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            // Registering before checking means a release can't be missed
+            while (!tryAcquire()) {
+                LockSupport.park(this);
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    /**
+     * Take a step if one has been released
+     *
+     * @return true if a step was taken
+     * @throws InterruptedException if the gate has been cancelled
+     */
+    private boolean tryAcquire() throws InterruptedException {
+        final int s = state;
+        if (s == OPEN) {
+            return true;
+        }
+        if (s == CANCELLED) {
+            throw new InterruptedException();
+        }
+
+        long p;
+        while ((p = permits.get()) > 0) {
+            if (permits.compareAndSet(p, p - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Release steps, waking any waiting threads
+     *
+     * @param steps the number of steps to release
+     */
+    void release(int steps) {
+        permits.addAndGet(steps);
+        wakeAll();
+    }
+
+    /**
+     * Get the number of released steps that have not yet been taken
+     *
+     * @return the number of steps waiting to be taken
+     */
+    long available() {
+        return permits.get();
+    }
+
+    /**
+     * Take back all released steps that have not yet been taken
+     *
+     * @return the number of steps taken back
+     */
+    long revoke() {
+        return permits.getAndSet(0);
+    }
+
+    /**
+     * Cancel the sort, making every current and future call to acquire()
+     * throw InterruptedException
+     */
+    void cancel() {
+        state = CANCELLED;
+        wakeAll();
+    }
+
+    /**
+     * Open the gate, so that acquire() returns immediately from now on
+     */
+    void open() {
+        if (state == GATED) {
+            state = OPEN;
+        }
+        wakeAll();
+    }
+
+    /**
+     * Check if the gate has been opened
+     *
+     * @return true if steps are no longer being waited for
+     */
+    boolean isOpen() {
+        return state == OPEN;
+    }
+
+    private void wakeAll() {
+        for (Thread t : waiters) {
+            LockSupport.unpark(t);
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package run.mycode.sortdemo.sort;
 
-import java.util.concurrent.Semaphore;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
 import run.mycode.sortdemo.util.DemoArray;
 
 /**
@@ -12,6 +18,11 @@ import run.mycode.sortdemo.util.DemoArray;
  * @author bdahl
  */
 public abstract class SteppableSorter<T extends Comparable<T>> {
+    /**
+     * The number of steps released at a time by stepFor()
+     */
+    private static final int STEP_BATCH = 256;
+
     /**
      * True once the sort operation is complete and the DemoArray arr is 
      * believed to be sorted.
@@ -24,25 +35,55 @@ public abstract class SteppableSorter<T extends Comparable<T>> {
     protected volatile boolean started;
     
     /**
-     * The semaphore that controls the speed of the sort. Acquiring the 
-     * semaphore will pause until step() is called.
+     * The gate that controls the speed of the sort. Acquiring the gate will
+     * pause until step() is called.
      */
-    protected Semaphore step;
+    protected final StepGate step;
 
     /**
      * The array to sort in implementation of sort()
      */
     protected final DemoArray<T> arr;
 
-    
     /**
-     * The thread that is executing the sort() method
+     * The name of the sort, used to tag the thread running it
+     */
+    private final String sortName;
+
+    /**
+     * The background task executing the sort() method, once started
+     */
+    private Future<?> sorter;
+
+    /**
+     * True once the sort has been interrupted
+     */
+    private volatile boolean interrupted;
+
+    /**
+     * The exception or error that ended the sort, null unless it failed
+     */
+    private volatile Throwable failure;
+
+    /**
+     * The wall clock and CPU time taken by sort(), -1 until it returns
+     */
+    private volatile long elapsedNanos;
+    private volatile long cpuNanos;
+
+    /**
+     * The wall clock time and array accesses of each phase of the sort, for
+     * sorts that divide their work into phases, and the phase now running
      */
-    protected Thread sorter;
+    private final Map<String, Long> phaseNanos;
+    private final Map<String, Long> phaseAccesses;
+    private String phase;
+    private long phaseStart;
+    private long phaseStartAccesses;
 
     /**
-     * Prepare the sorter to sort the array and spawn a new thread to run the
-     * sorting
+     * Prepare the sorter to sort the array. The sort will run in the 
+     * background once the first step is taken.
      *
      * @param arr The array to be sorted
      * @param sortName The name of the sort to tag the thread with and display
@@ -50,27 +91,20 @@ public abstract class SteppableSorter<T extends Comparable<T>> {
      */
     public SteppableSorter(DemoArray<T> arr, String sortName) {
         this.arr = arr;
+        this.sortName = sortName;
         
-        this.step = new Semaphore(0);
+        this.step = new StepGate();
 
         // 0 or 1 element is already sorted
         this.done = arr.length() <= 1;
-        if (done) {
-            sorter = null;
-            started = false;
-        } else {
-            started = false;
-
-            sorter = new Thread(() -> {
-                try {
-                    sort();
-                } catch (InterruptedException ignored) {
-                    /*
-                        If the thread is interrupted, just quit the sort.
-                     */
-                }
-            }, sortName);
-        }
+        this.started = false;
+        this.interrupted = false;
+        this.sorter = null;
+        this.elapsedNanos = -1;
+        this.cpuNanos = -1;
+        this.phaseNanos = new LinkedHashMap<>();
+        this.phaseAccesses = new LinkedHashMap<>();
+        this.phase = null;
     }
 
     /**
@@ -95,16 +129,267 @@ public abstract class SteppableSorter<T extends Comparable<T>> {
      * Perform the next step of the sort
      */
     public final void step() {
-        if (done || sorter == null) {
+        step(1);
+    }
+
+    /**
+     * Perform the next steps of the sort. The steps are taken in the 
+     * background, this method does not wait for them to complete.
+     *
+     * @param steps the number of steps to perform
+     */
+    public final void step(int steps) {
+        if (done || interrupted || steps <= 0) {
             return;
         }
 
-        if (!sorter.isAlive() && !started) {
+        start();
+        step.release(steps); // Execute the next steps
+    }
+
+    /**
+     * Begin running the sort in the background, if it hasn't been started
+     */
+    private void start() {
+        if (!started) {
             started = true;
-            sorter.start();
+            sorter = SorterThreads.start(() -> {
+                try {
+                    timedSort();
+                } catch (InterruptedException ignored) {
+                    /*
+                        If the thread is interrupted, just quit the sort.
+                     */
+                } catch (RuntimeException | Error ex) {
+                    fail(ex);
+                }
+            }, sortName);
+        }
+    }
+
+    /**
+     * Stop a sort that failed, so that it takes no more steps and the UI can
+     * show what went wrong, and report the failure as an uncaught exception
+     * on the sorting thread would be
+     *
+     * @param ex the exception or error that ended the sort
+     */
+    private void fail(Throwable ex) {
+        failure = ex;
+        interrupted = true;
+        step.cancel();
+
+        final Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, ex);
+    }
+
+    /**
+     * Run the sort, measuring the time it takes
+     *
+     * @throws InterruptedException if the sort is interrupted
+     */
+    private void timedSort() throws InterruptedException {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final boolean cpuTimed = threads.isCurrentThreadCpuTimeSupported();
+
+        final long cpuStart = cpuTimed ? threads.getCurrentThreadCpuTime() : -1;
+        final long start = System.nanoTime();
+
+        sort();
+        endPhase();
+
+        final long elapsed = System.nanoTime() - start;
+        if (cpuTimed && cpuStart >= 0) {
+            long cpuEnd = threads.getCurrentThreadCpuTime();
+            cpuNanos = cpuEnd >= 0 ? cpuEnd - cpuStart : -1;
+        }
+        elapsedNanos = elapsed;  // Set last, marks the timing as complete
+    }
+
+    /**
+     * Let the sort run to completion in the background at full speed, without
+     * waiting for any more steps. Operations are still counted.
+     */
+    public final void runUnthrottled() {
+        if (done || interrupted) {
+            return;
         }
 
-        step.release(); // Execute the next step
+        step.open();
+        start();
+    }
+
+    /**
+     * Run the sort to completion in the calling thread at full speed, without
+     * waiting for any steps. Operations are still counted. Used to benchmark
+     * the sorting algorithm.
+     *
+     * @throws InterruptedException if the sort is interrupted
+     * @throws IllegalStateException if the sort has already been started
+     */
+    public final void sortNow() throws InterruptedException {
+        if (started) {
+            throw new IllegalStateException("The sort has already started");
+        }
+        started = true;
+
+        step.open();
+        if (!done) {
+            timedSort();
+        } else {
+            elapsedNanos = 0;
+            cpuNanos = 0;
+        }
+    }
+
+    /**
+     * Check if the sort is running without waiting for steps
+     *
+     * @return true if the sort is unthrottled
+     */
+    public boolean isUnthrottled() {
+        return step.isOpen();
+    }
+
+    /**
+     * Get the wall clock time taken to sort. Only meaningful for an 
+     * unthrottled sort, since otherwise it includes the time spent waiting for
+     * steps.
+     *
+     * @return the time in nanoseconds, -1 if the sort hasn't finished
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the CPU time used by the thread running the sort
+     *
+     * @return the time in nanoseconds, -1 if the sort hasn't finished or CPU
+     *         time can't be measured
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Begin a new phase of the sort, ending the current one. Sorts made of
+     * distinct phases call this as each one starts, so that the time and
+     * array accesses of each phase can be reported.
+     *
+     * @param name the name of the phase
+     */
+    protected final synchronized void beginPhase(String name) {
+        endPhase();
+
+        phase = name;
+        phaseStart = System.nanoTime();
+        phaseStartAccesses = countAccesses();
+    }
+
+    /**
+     * Add the time and accesses of the current phase, if any, to its totals
+     */
+    private synchronized void endPhase() {
+        if (phase != null) {
+            phaseNanos.merge(phase, System.nanoTime() - phaseStart, Long::sum);
+            phaseAccesses.merge(phase, countAccesses() - phaseStartAccesses,
+                    Long::sum);
+            phase = null;
+        }
+    }
+
+    private long countAccesses() {
+        long accesses = arr.getAccesses();
+        if (usesScratchArray()) {
+            accesses += getScratchArray().getAccesses();
+        }
+        return accesses;
+    }
+
+    /**
+     * Get the wall clock time spent in each phase of the sort, like
+     * getElapsedNanos only meaningful for an unthrottled sort
+     *
+     * @return the time in nanoseconds of each finished phase, in the order
+     *         they began; empty if the sort isn't divided into phases
+     */
+    public synchronized Map<String, Long> getPhaseNanos() {
+        return new LinkedHashMap<>(phaseNanos);
+    }
+
+    /**
+     * Get the number of accesses to the array and the scratch array made in
+     * each phase of the sort
+     *
+     * @return the accesses of each finished phase, in the order they began;
+     *         empty if the sort isn't divided into phases
+     */
+    public synchronized Map<String, Long> getPhaseAccesses() {
+        return new LinkedHashMap<>(phaseAccesses);
+    }
+
+    /**
+     * Let the sort run for up to a given amount of time, waiting while it
+     * runs. Steps that haven't been taken when the time is up are taken back,
+     * so the sort pauses close to the end of the time allowed.
+     *
+     * @param micros the number of microseconds to allow the sort to run
+     * @return the number of steps that were performed
+     */
+    public final long stepFor(long micros) {
+        return stepAllFor(Collections.singletonList(this), micros);
+    }
+
+    /**
+     * Let several sorts run side by side for up to a given amount of time,
+     * waiting while they run. Every unfinished sort is released the same
+     * number of steps at a time, and each runs on its own thread, so they
+     * advance together and in parallel. Steps that haven't been taken when
+     * the time is up are taken back.
+     *
+     * @param sorters the sorts to run
+     * @param micros the number of microseconds to allow the sorts to run
+     * @return the total number of steps that were performed
+     */
+    public static long stepAllFor(
+            Collection<? extends SteppableSorter<?>> sorters, long micros) {
+        final long deadline = System.nanoTime() + micros * 1000;
+        long released = 0;
+        boolean running = true;
+
+        while (running && System.nanoTime() < deadline) {
+            running = false;
+            for (SteppableSorter<?> s : sorters) {
+                if (s.isRunnable()) {
+                    s.step(STEP_BATCH);
+                    released += STEP_BATCH;
+                    running = true;
+                }
+            }
+
+            // Wait for every sort to work through its batch
+            for (SteppableSorter<?> s : sorters) {
+                while (s.step.available() > 0 && s.isRunnable()
+                        && System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+            }
+        }
+
+        for (SteppableSorter<?> s : sorters) {
+            released -= s.step.revoke();
+        }
+        return released;
+    }
+
+    /**
+     * Check if the sort can still take steps
+     *
+     * @return true if the sort is neither finished nor interrupted
+     */
+    private boolean isRunnable() {
+        return !done && !interrupted;
     }
 
     /**
@@ -117,27 +402,41 @@ public abstract class SteppableSorter<T extends Comparable<T>> {
     }
 
     /**
-     * Check if the sorting thread has been interrupted and cannot continue
+     * Check if the sort has been interrupted and cannot continue
      * 
-     * @return true if the thread was interrupted
+     * @return true if the sort was interrupted or failed
      */
     public boolean isInterrupted() {
-        return sorter.isInterrupted();
+        return interrupted;
+    }
+
+    /**
+     * Get the exception or error that ended a failed sort
+     *
+     * @return what made the sort fail, null if it hasn't failed
+     */
+    public Throwable getFailure() {
+        return failure;
     }
     
     /**
-     * Interrupt the sorting thread
+     * Interrupt the sort, stopping it at its next step
      */
     public void interrupt() {
-        sorter.interrupt();
+        interrupted = true;
+        step.cancel();
+
+        if (sorter != null) {
+            sorter.cancel(true);
+        }
     }
     
     /**
-     * Perform the sorting operation on arr. This method will be called in a new 
-     * thread, to sort the DemoArray arr.
+     * Perform the sorting operation on arr. This method will be called in a
+     * background thread, to sort the DemoArray arr.
      * 
      * @throws InterruptedException if the sorting thread is interrupted while
-     *                              waiting for the semaphore. Note: the sort
+     *                              waiting for a step. Note: the sort
      *                              status on this exception is undefined. It
      *                              may be possible to restart the sort 
      *                              depending on sort implementation
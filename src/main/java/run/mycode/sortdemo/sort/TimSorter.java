@@ -0,0 +1,644 @@
+package run.mycode.sortdemo.sort;
+
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Perform a TimSort on a DemoArray, following the JDK's implementation. The
+ * array is scanned for natural runs, ascending or strictly descending (which
+ * are reversed), and short runs are extended to a minimum length with binary
+ * insertion sort. Runs are kept on a stack and merged as soon as their
+ * lengths stop shrinking fast enough, so merges stay balanced. While merging,
+ * once one run wins several times in a row the sort switches to galloping:
+ * it searches for how many elements in a row to take from that run, and
+ * moves them all at once.
+ *
+ * Data that is already sorted, reversed or made of a few long runs is sorted
+ * in close to linear time.
+ *
+ * @param <T> The type of item to sort
+ *
+ * @author bdahl
+ */
+public class TimSorter<T extends Comparable<T>> extends SteppableSorter<T> {
+
+    public static final String NAME = "Tim Sort";
+
+    // Arrays shorter than this are sorted with binary insertion sort alone
+    private static final int MIN_MERGE = 32;
+
+    // How many wins in a row start galloping
+    private static final int MIN_GALLOP = 7;
+
+    private final DemoArray<T> tmp; // a scratch array to merge from
+    private int minGallop;
+
+    // The stack of runs waiting to be merged
+    private final int[] runBase;
+    private final int[] runLen;
+    private int stackSize;
+
+    /**
+     * Prepare to TimSort a DemoArray
+     *
+     * @param arr the array to sort
+     */
+    public TimSorter(DemoArray<T> arr) {
+        super(arr, NAME);
+
+        // A merge never needs more than the shorter of its two runs
+        this.tmp = arr.createScratch(Math.max(1, arr.length() / 2));
+
+        this.minGallop = MIN_GALLOP;
+        this.runBase = new int[49];  // enough for any int length
+        this.runLen = new int[49];
+        this.stackSize = 0;
+    }
+
+    @Override
+    public boolean usesScratchArray() {
+        return true;
+    }
+
+    @Override
+    public DemoArray<T> getScratchArray() {
+        return tmp;
+    }
+
+    @Override
+    protected void sort() throws InterruptedException {
+        final int n = arr.length();
+
+        if (n < MIN_MERGE) {
+            binarySort(0, n, countRunAndMakeAscending(0, n));
+            done = true;
+            return;
+        }
+
+        final int minRun = minRunLength(n);
+        int lo = 0;
+        int remaining = n;
+        do {
+            int len = countRunAndMakeAscending(lo, n);
+
+            // Extend a short run to minRun elements
+            if (len < minRun) {
+                int force = Math.min(remaining, minRun);
+                binarySort(lo, lo + force, lo + len);
+                len = force;
+            }
+
+            pushRun(lo, len);
+            mergeCollapse();
+
+            lo += len;
+            remaining -= len;
+        } while (remaining != 0);
+
+        mergeForceCollapse();
+
+        done = true;
+    }
+
+    /**
+     * Choose the minimum run length, so that the number of runs is equal to
+     * or a little less than a power of two, which merges most evenly
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= (n & 1);
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Find the length of the run beginning at lo, reversing it if it is
+     * descending
+     *
+     * @param lo the first location of the run
+     * @param hi one past the last location that may be in the run
+     * @return the length of the run
+     */
+    private int countRunAndMakeAscending(int lo, int hi)
+            throws InterruptedException {
+        int runHi = lo + 1;
+        if (runHi >= hi) {
+            return hi - lo;
+        }
+
+        step.acquire();  // Pause for the next step
+        if (arr.compare(runHi++, lo) < 0) {
+            // Strictly descending, so reversing it keeps the sort stable
+            while (runHi < hi) {
+                step.acquire();  // Pause for the next step
+                if (arr.compare(runHi, runHi - 1) >= 0) {
+                    break;
+                }
+                runHi++;
+            }
+            reverseRange(lo, runHi);
+        } else {
+            while (runHi < hi) {
+                step.acquire();  // Pause for the next step
+                if (arr.compare(runHi, runHi - 1) < 0) {
+                    break;
+                }
+                runHi++;
+            }
+        }
+
+        return runHi - lo;
+    }
+
+    private void reverseRange(int lo, int hi) throws InterruptedException {
+        hi--;
+        while (lo < hi) {
+            step.acquire();  // Pause for the next step
+            arr.swap(lo++, hi--);
+        }
+    }
+
+    /**
+     * Sort a range with binary insertion sort, given that its beginning is
+     * already sorted
+     *
+     * @param lo the first location of the range
+     * @param hi one past the last location of the range
+     * @param start the first location that might not be in order
+     */
+    private void binarySort(int lo, int hi, int start)
+            throws InterruptedException {
+        if (start == lo) {
+            start++;
+        }
+
+        for (; start < hi; start++) {
+            step.acquire();  // Pause for the next step
+            T pivot = arr.remove(start);
+
+            // Find the location after any elements equal to the pivot
+            int left = lo;
+            int right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (compareKey(pivot, arr, mid) < 0) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+
+            for (int i = start; i > left; i--) {
+                step.acquire();  // Pause for the next step
+                arr.move(i - 1, i);
+            }
+
+            step.acquire();  // Pause for the next step
+            arr.set(left, pivot);
+        }
+    }
+
+    private void pushRun(int base, int len) {
+        runBase[stackSize] = base;
+        runLen[stackSize] = len;
+        stackSize++;
+    }
+
+    /**
+     * Merge runs until the stack lengths satisfy the invariants:
+     * runLen[i - 2] > runLen[i - 1] + runLen[i] and runLen[i - 1] > runLen[i]
+     */
+    private void mergeCollapse() throws InterruptedException {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]
+                    || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;  // The invariants hold
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * Merge all the runs left on the stack
+     */
+    private void mergeForceCollapse() throws InterruptedException {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * Merge the two runs at stack positions i and i + 1
+     */
+    private void mergeAt(int i) throws InterruptedException {
+        int base1 = runBase[i];
+        int len1 = runLen[i];
+        final int base2 = runBase[i + 1];
+        int len2 = runLen[i + 1];
+
+        runLen[i] = len1 + len2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        // Elements at the start of run1 that are already in place can be
+        // skipped
+        step.acquire();  // Pause for the next step
+        final int k = gallopRight(arr.get(base2), arr, base1, len1, 0);
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) {
+            return;
+        }
+
+        // As can elements at the end of run2
+        step.acquire();  // Pause for the next step
+        len2 = gallopLeft(arr.get(base1 + len1 - 1), arr, base2, len2,
+                len2 - 1);
+        if (len2 == 0) {
+            return;
+        }
+
+        if (len1 <= len2) {
+            mergeLo(base1, len1, base2, len2);
+        } else {
+            mergeHi(base1, len1, base2, len2);
+        }
+    }
+
+    /**
+     * Find where to insert a key into a sorted range, before any equal
+     * elements. The search gallops out from the hint, checking locations at
+     * increasing distances, then binary searches the last gap.
+     *
+     * @param key the element to insert
+     * @param a the array holding the range
+     * @param base the first location of the range
+     * @param len the length of the range
+     * @param hint where to start searching, from 0 to len - 1
+     * @return the number of elements in the range less than the key
+     */
+    private int gallopLeft(T key, DemoArray<T> a, int base, int len, int hint)
+            throws InterruptedException {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (compareKey(key, a, base + hint) > 0) {
+            // Gallop right until a[base+hint+lastOfs] < key <= a[base+hint+ofs]
+            final int maxOfs = len - hint;
+            while (ofs < maxOfs && compareKey(key, a, base + hint + ofs) > 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {   // int overflow
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            // Gallop left until a[base+hint-ofs] < key <= a[base+hint-lastOfs]
+            final int maxOfs = hint + 1;
+            while (ofs < maxOfs && compareKey(key, a, base + hint - ofs) <= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {   // int overflow
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+
+            final int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+
+        // Binary search between lastOfs and ofs
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (compareKey(key, a, base + m) > 0) {
+                lastOfs = m + 1;
+            } else {
+                ofs = m;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Find where to insert a key into a sorted range, after any equal
+     * elements. Searches like gallopLeft.
+     *
+     * @param key the element to insert
+     * @param a the array holding the range
+     * @param base the first location of the range
+     * @param len the length of the range
+     * @param hint where to start searching, from 0 to len - 1
+     * @return the number of elements in the range less than or equal to the
+     *         key
+     */
+    private int gallopRight(T key, DemoArray<T> a, int base, int len, int hint)
+            throws InterruptedException {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (compareKey(key, a, base + hint) < 0) {
+            // Gallop left until a[base+hint-ofs] <= key < a[base+hint-lastOfs]
+            final int maxOfs = hint + 1;
+            while (ofs < maxOfs && compareKey(key, a, base + hint - ofs) < 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {   // int overflow
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+
+            final int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            // Gallop right until a[base+hint+lastOfs] <= key < a[base+hint+ofs]
+            final int maxOfs = len - hint;
+            while (ofs < maxOfs && compareKey(key, a, base + hint + ofs) >= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {   // int overflow
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+
+            lastOfs += hint;
+            ofs += hint;
+        }
+
+        // Binary search between lastOfs and ofs
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (compareKey(key, a, base + m) < 0) {
+                ofs = m;
+            } else {
+                lastOfs = m + 1;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Merge two adjacent runs, where the first is no longer than the second,
+     * by moving the first run to the scratch array and merging from the
+     * front
+     */
+    private void mergeLo(int base1, int len1, int base2, int len2)
+            throws InterruptedException {
+        transfer(arr, base1, tmp, 0, len1);
+
+        int cursor1 = 0;       // in tmp
+        int cursor2 = base2;   // in arr
+        int dest = base1;      // in arr
+
+        transfer(arr, cursor2++, arr, dest++, 1);
+        if (--len2 == 0) {
+            transfer(tmp, cursor1, arr, dest, len1);
+            return;
+        }
+        if (len1 == 1) {
+            transfer(arr, cursor2, arr, dest, len2);
+            transfer(tmp, cursor1, arr, dest + len2, 1);
+            return;
+        }
+
+        outer:
+        while (true) {
+            int count1 = 0; // Number of times in a row that the first run won
+            int count2 = 0; // Number of times in a row that the second run won
+
+            // Take one element at a time until one run keeps winning
+            do {
+                step.acquire();  // Pause for the next step
+                if (compareKey(arr.get(cursor2), tmp, cursor1) < 0) {
+                    transfer(arr, cursor2++, arr, dest++, 1);
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 0) {
+                        break outer;
+                    }
+                } else {
+                    transfer(tmp, cursor1++, arr, dest++, 1);
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 1) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < minGallop);
+
+            // Gallop until neither run is winning consistently
+            do {
+                step.acquire();  // Pause for the next step
+                count1 = gallopRight(arr.get(cursor2), tmp, cursor1, len1, 0);
+                if (count1 != 0) {
+                    transfer(tmp, cursor1, arr, dest, count1);
+                    dest += count1;
+                    cursor1 += count1;
+                    len1 -= count1;
+                    if (len1 <= 1) {
+                        break outer;
+                    }
+                }
+                transfer(arr, cursor2++, arr, dest++, 1);
+                if (--len2 == 0) {
+                    break outer;
+                }
+
+                step.acquire();  // Pause for the next step
+                count2 = gallopLeft(tmp.get(cursor1), arr, cursor2, len2, 0);
+                if (count2 != 0) {
+                    transfer(arr, cursor2, arr, dest, count2);
+                    dest += count2;
+                    cursor2 += count2;
+                    len2 -= count2;
+                    if (len2 == 0) {
+                        break outer;
+                    }
+                }
+                transfer(tmp, cursor1++, arr, dest++, 1);
+                if (--len1 == 1) {
+                    break outer;
+                }
+                minGallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+
+            minGallop = Math.max(minGallop, 0) + 2;  // Leaving gallop mode
+        }
+        minGallop = Math.max(minGallop, 1);
+
+        if (len1 == 1) {
+            transfer(arr, cursor2, arr, dest, len2);
+            transfer(tmp, cursor1, arr, dest + len2, 1);
+        } else if (len1 == 0) {
+            throw new IllegalStateException(
+                    "Comparison method violates its general contract");
+        } else {
+            transfer(tmp, cursor1, arr, dest, len1);
+        }
+    }
+
+    /**
+     * Merge two adjacent runs, where the first is longer than the second, by
+     * moving the second run to the scratch array and merging from the back
+     */
+    private void mergeHi(int base1, int len1, int base2, int len2)
+            throws InterruptedException {
+        transfer(arr, base2, tmp, 0, len2);
+
+        int cursor1 = base1 + len1 - 1;  // in arr
+        int cursor2 = len2 - 1;          // in tmp
+        int dest = base2 + len2 - 1;     // in arr
+
+        transfer(arr, cursor1--, arr, dest--, 1);
+        if (--len1 == 0) {
+            transfer(tmp, 0, arr, dest - (len2 - 1), len2);
+            return;
+        }
+        if (len2 == 1) {
+            dest -= len1;
+            cursor1 -= len1;
+            transfer(arr, cursor1 + 1, arr, dest + 1, len1);
+            transfer(tmp, cursor2, arr, dest, 1);
+            return;
+        }
+
+        outer:
+        while (true) {
+            int count1 = 0; // Number of times in a row that the first run won
+            int count2 = 0; // Number of times in a row that the second run won
+
+            // Take one element at a time until one run keeps winning
+            do {
+                step.acquire();  // Pause for the next step
+                if (compareKey(tmp.get(cursor2), arr, cursor1) < 0) {
+                    transfer(arr, cursor1--, arr, dest--, 1);
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 0) {
+                        break outer;
+                    }
+                } else {
+                    transfer(tmp, cursor2--, arr, dest--, 1);
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 1) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < minGallop);
+
+            // Gallop until neither run is winning consistently
+            do {
+                step.acquire();  // Pause for the next step
+                count1 = len1 - gallopRight(tmp.get(cursor2), arr, base1, len1,
+                        len1 - 1);
+                if (count1 != 0) {
+                    dest -= count1;
+                    cursor1 -= count1;
+                    len1 -= count1;
+                    transfer(arr, cursor1 + 1, arr, dest + 1, count1);
+                    if (len1 == 0) {
+                        break outer;
+                    }
+                }
+                transfer(tmp, cursor2--, arr, dest--, 1);
+                if (--len2 == 1) {
+                    break outer;
+                }
+
+                step.acquire();  // Pause for the next step
+                count2 = len2 - gallopLeft(arr.get(cursor1), tmp, 0, len2,
+                        len2 - 1);
+                if (count2 != 0) {
+                    dest -= count2;
+                    cursor2 -= count2;
+                    len2 -= count2;
+                    transfer(tmp, cursor2 + 1, arr, dest + 1, count2);
+                    if (len2 <= 1) {
+                        break outer;
+                    }
+                }
+                transfer(arr, cursor1--, arr, dest--, 1);
+                if (--len1 == 0) {
+                    break outer;
+                }
+                minGallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+
+            minGallop = Math.max(minGallop, 0) + 2;  // Leaving gallop mode
+        }
+        minGallop = Math.max(minGallop, 1);
+
+        if (len2 == 1) {
+            dest -= len1;
+            cursor1 -= len1;
+            transfer(arr, cursor1 + 1, arr, dest + 1, len1);
+            transfer(tmp, cursor2, arr, dest, 1);
+        } else if (len2 == 0) {
+            throw new IllegalStateException(
+                    "Comparison method violates its general contract");
+        } else {
+            transfer(tmp, 0, arr, dest - (len2 - 1), len2);
+        }
+    }
+
+    /**
+     * Compare a key with an element of an array
+     *
+     * @return less than, equal to or greater than zero as the key is less
+     *         than, equal to or greater than the element
+     */
+    private int compareKey(T key, DemoArray<T> a, int index)
+            throws InterruptedException {
+        step.acquire();  // Pause for the next step
+        return -Integer.signum(a.compare(index, key));
+    }
+
+    /**
+     * Move a block of elements, between the arrays or within the array being
+     * sorted. Overlapping blocks are moved in the safe direction.
+     */
+    private void transfer(DemoArray<T> from, int src, DemoArray<T> to,
+            int dest, int count) throws InterruptedException {
+        if (from == to) {
+            if (src < dest) {
+                for (int i = count - 1; i >= 0; i--) {
+                    step.acquire();  // Pause for the next step
+                    to.move(src + i, dest + i);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    step.acquire();  // Pause for the next step
+                    to.move(src + i, dest + i);
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                step.acquire();  // Pause for the next step
+                to.set(dest + i, from == tmp ? tmp.remove(src + i)
+                        : from.get(src + i));
+            }
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package run.mycode.sortdemo.ui;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import run.mycode.sortdemo.util.DemoArray;
+
+/**
+ * Draws the contents of an integer array, and optionally a scratch array, as
+ * a bar chart on a single Canvas. The values shown are kept in a primitive
+ * mirror of the arrays that is updated from the array callbacks, and only the
+ * pixel columns that changed since the last animation pulse are repainted, so
+ * the display keeps up with arrays of many thousands of elements.
+ *
+ * When there are more elements than pixel columns, each column shows the
+ * range of the elements that fall in it: a solid bar up to the smallest and a
+ * lighter bar up to the largest. The smallest and largest values of each
+ * column are kept up to date as elements change, and a column is only rescanned
+ * when the element that was its smallest or largest is overwritten.
+ *
+ * Each value is drawn in only one place, where it was most recently written,
+ * so an element copied to the scratch array disappears from the main array
+ * until it is copied back.
+ *
+ * Elements that are accessed flash blue and elements that are changed flash
+ * red, fading back to black over a fraction of a second. Accesses made by the
+ * workers of a parallel sort flash in a different color for each worker. The
+ * brightness of each flash is kept in a per-element intensity array that is
+ * decayed once per pulse, just before the affected columns are repainted.
+ *
+ * All methods must be called on the FX thread.
+ *
+ * @author bdahl
+ */
+public class BarCanvas extends Pane {
+
+    /**
+     * The row showing the array being sorted
+     */
+    public static final int MAIN = 0;
+
+    /**
+     * The row showing the scratch array, drawn above the main array
+     */
+    public static final int SCRATCH = 1;
+
+    /**
+     * The value of an array location that holds no element
+     */
+    public static final int EMPTY = Integer.MIN_VALUE;
+
+    private static final Color BAR_COLOR = Color.BLACK;
+    private static final Color CHANGE_COLOR = Color.RED;
+
+    // The access highlight of a single threaded sort, followed by those of
+    // the workers of a parallel sort
+    private static final Color[] ACCESS_COLORS = {Color.BLUE, Color.LIMEGREEN,
+        Color.DARKORANGE, Color.MAGENTA, Color.DARKTURQUOISE, Color.BLUEVIOLET,
+        Color.GOLD, Color.SADDLEBROWN};
+
+    private static final double ACCESS_FADE = 100e6;   // nanoseconds
+    private static final double CHANGE_FADE = 200e6;
+
+    // The highlight colors, by access color and access and change intensity
+    // level, for the solid bars and for the lighter range above them
+    private static final int LEVELS = 16;
+    private static final Color[][][] COLORS
+            = new Color[ACCESS_COLORS.length][LEVELS][LEVELS];
+    private static final Color[][][] RANGE_COLORS
+            = new Color[ACCESS_COLORS.length][LEVELS][LEVELS];
+
+    static {
+        for (int w = 0; w < ACCESS_COLORS.length; w++) {
+            for (int a = 0; a < LEVELS; a++) {
+                for (int c = 0; c < LEVELS; c++) {
+                    COLORS[w][a][c] = BAR_COLOR
+                            .interpolate(ACCESS_COLORS[w], a / (LEVELS - 1.0))
+                            .interpolate(CHANGE_COLOR, c / (LEVELS - 1.0));
+                    RANGE_COLORS[w][a][c] = COLORS[w][a][c]
+                            .interpolate(Color.WHITE, 0.6);
+                }
+            }
+        }
+    }
+
+    // Leave a gap between bars that are at least this many pixels wide
+    private static final int MIN_GAPPED_WIDTH = 4;
+
+    // The smallest fraction of the height given to a short scratch array
+    private static final double MIN_SCRATCH_SHARE = 0.25;
+
+    private final Canvas canvas;
+    private final AnimationTimer painter;
+    private boolean painting;
+
+    private final int[][] values;
+    private final BitSet[] dirty;
+    private boolean fullRepaint;
+
+    // The smallest and largest value in each column, when there are more
+    // elements than columns, and the columns that need to be rescanned
+    private final int[][] columnMin;
+    private final int[][] columnMax;
+    private final BitSet[] stale;
+
+    // How brightly each element is highlighted, from 1 fading to 0, and the
+    // brightest highlight in each column. The access color of each element
+    // and column is that of the worker that accessed it.
+    private final float[][] accessGlow;
+    private final float[][] changeGlow;
+    private final byte[][] accessColor;
+    private final BitSet[] glowing;
+    private final float[][] columnAccess;
+    private final float[][] columnChange;
+    private final byte[][] columnColor;
+    private long lastPulse;
+
+    // Where each value was last written, so it can be drawn only there
+    private int[] valueRow;
+    private int[] valueIndex;
+    private int maxValue;
+
+    public BarCanvas() {
+        canvas = new Canvas();
+        getChildren().add(canvas);
+
+        values = new int[][]{new int[0], new int[0]};
+        dirty = new BitSet[]{new BitSet(), new BitSet()};
+        columnMin = new int[2][0];
+        columnMax = new int[2][0];
+        stale = new BitSet[]{new BitSet(), new BitSet()};
+        accessGlow = new float[][]{new float[0], new float[0]};
+        changeGlow = new float[][]{new float[0], new float[0]};
+        accessColor = new byte[][]{new byte[0], new byte[0]};
+        glowing = new BitSet[]{new BitSet(), new BitSet()};
+        columnAccess = new float[2][0];
+        columnChange = new float[2][0];
+        columnColor = new byte[2][0];
+        valueRow = new int[0];
+        valueIndex = new int[0];
+        maxValue = 0;
+
+        painter = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                paint(now);
+            }
+        };
+        painting = false;
+    }
+
+    /**
+     * Show a new array, replacing anything currently displayed
+     *
+     * @param main the values in the array being sorted, which must not be
+     *             negative
+     * @param scratchSize the size of the scratch array, 0 for none
+     */
+    public void setData(int[] main, int scratchSize) {
+        maxValue = 0;
+        for (int v : main) {
+            maxValue = Math.max(maxValue, v);
+        }
+
+        valueRow = new int[maxValue + 1];
+        valueIndex = new int[maxValue + 1];
+        Arrays.fill(valueRow, -1);
+
+        values[MAIN] = new int[main.length];
+        values[SCRATCH] = new int[scratchSize];
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            Arrays.fill(values[row], EMPTY);
+            accessGlow[row] = new float[values[row].length];
+            changeGlow[row] = new float[values[row].length];
+            accessColor[row] = new byte[values[row].length];
+            glowing[row].clear();
+        }
+
+        resize();
+        for (int i = 0; i < main.length; i++) {
+            store(MAIN, i, main[i]);
+        }
+    }
+
+    /**
+     * Show the state of both arrays at once, as when replaying a sort. Values
+     * in the scratch array are shown there rather than in the main array.
+     *
+     * @param main the values in the array being sorted, or EMPTY
+     * @param scratch the values in the scratch array, or EMPTY
+     */
+    public void showState(int[] main, int[] scratch) {
+        Arrays.fill(valueRow, -1);
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            Arrays.fill(values[row], EMPTY);
+            Arrays.fill(accessGlow[row], 0);
+            Arrays.fill(changeGlow[row], 0);
+            glowing[row].clear();
+        }
+
+        invalidate();
+        for (int i = 0; i < main.length && i < values[MAIN].length; i++) {
+            store(MAIN, i, main[i]);
+        }
+        for (int i = 0; i < scratch.length && i < values[SCRATCH].length; i++) {
+            store(SCRATCH, i, scratch[i]);
+        }
+    }
+
+    /**
+     * Replace the values shown in one row, as when the array changed too
+     * quickly for each change to be shown
+     *
+     * @param row MAIN or SCRATCH
+     * @param keys the values in the array, or EMPTY
+     */
+    public void reload(int row, int[] keys) {
+        invalidate();
+        for (int i = 0; i < keys.length && i < values[row].length; i++) {
+            store(row, i, keys[i]);
+        }
+    }
+
+    /**
+     * Change the value shown at a location, highlighting the change
+     *
+     * @param row MAIN or SCRATCH
+     * @param index the location in the array
+     * @param value the new value, or EMPTY
+     */
+    public void setValue(int row, int index, int value) {
+        store(row, index, value);
+        changeGlow[row][index] = 1;
+        glowing[row].set(index);
+    }
+
+    /**
+     * Highlight an access to a location
+     *
+     * @param row MAIN or SCRATCH
+     * @param index the location in the array
+     */
+    public void access(int row, int index) {
+        access(row, index, 0);
+    }
+
+    /**
+     * Highlight an access to a location by a worker of a parallel sort, in
+     * that worker's color
+     *
+     * @param row MAIN or SCRATCH
+     * @param index the location in the array
+     * @param worker the worker number from DemoArray.getEventWorker(), 0 for
+     *               a single threaded sort
+     */
+    public void access(int row, int index, int worker) {
+        accessGlow[row][index] = 1;
+        accessColor[row][index] = (byte) (worker == 0
+                ? 0 : 1 + (worker - 1) % (ACCESS_COLORS.length - 1));
+        glowing[row].set(index);
+        markDirty(row, index);
+    }
+
+    /**
+     * Connect the events of a DemoArray to one row of the display, so that
+     * its accesses and changes are shown as they happen
+     *
+     * @param array the DemoArray to show
+     * @param row MAIN or SCRATCH
+     */
+    public void watch(DemoArray<Integer> array, int row) {
+        // When an element is accessed, highlight it in blue, or in the color
+        // of the worker that accessed it
+        array.setOnAccess((idx, val) -> access(row, idx,
+                array.getEventWorker()));
+
+        // When an element is modified, show its new value highlighted in red
+        array.setOnChange((idx, oldval, val) -> setValue(row, idx,
+                val == null ? EMPTY : val));
+
+        // When changes come too quickly to show one by one, show the whole
+        // array again
+        array.setOnResync(() -> reload(row, array.toKeyArray()));
+    }
+
+    /**
+     * Record a value in the mirror, removing it from wherever it was shown
+     * before
+     */
+    private void store(int row, int index, int value) {
+        // Forget where the value being overwritten was
+        final int old = values[row][index];
+        if (tracked(old) && valueRow[old] == row && valueIndex[old] == index) {
+            valueRow[old] = -1;
+        }
+
+        if (tracked(value)) {
+            final int r = valueRow[value];
+            final int i = valueIndex[value];
+            if (r >= 0 && (r != row || i != index) && values[r][i] == value) {
+                put(r, i, EMPTY);
+            }
+            valueRow[value] = row;
+            valueIndex[value] = index;
+        }
+
+        put(row, index, value);
+    }
+
+    private boolean tracked(int value) {
+        return value >= 0 && value < valueRow.length;
+    }
+
+    /**
+     * Change a value in the mirror, keeping the range of its column up to
+     * date
+     */
+    private void put(int row, int index, int value) {
+        final int old = values[row][index];
+        values[row][index] = value;
+
+        if (aggregated(row)) {
+            final int c = firstColumn(row, index);
+            if (!stale[row].get(c)) {
+                if (old != EMPTY && (old == columnMin[row][c]
+                        || old == columnMax[row][c])) {
+                    // The column's range may have shrunk
+                    stale[row].set(c);
+                } else if (value != EMPTY) {
+                    columnMin[row][c] = Math.min(columnMin[row][c], value);
+                    columnMax[row][c] = Math.max(columnMax[row][c], value);
+                }
+            }
+        }
+
+        markDirty(row, index);
+    }
+
+    /**
+     * Mark the columns showing a location as needing to be repainted
+     */
+    private void markDirty(int row, int index) {
+        final int from = firstColumn(row, index);
+        final int to = Math.max(from + 1, firstColumn(row, index + 1));
+        dirty[row].set(Math.min(from, columns()), Math.min(to, columns()));
+        requestPaint();
+    }
+
+    /**
+     * Get the number of pixel columns available for the bars
+     */
+    private int columns() {
+        return (int) canvas.getWidth();
+    }
+
+    /**
+     * Check if a row has more elements than columns, so that each column
+     * shows the range of several elements
+     */
+    private boolean aggregated(int row) {
+        final int cols = columns();
+        return cols > 0 && values[row].length > cols;
+    }
+
+    /**
+     * Get the first pixel column used to show a location in a row
+     */
+    private int firstColumn(int row, int index) {
+        final int n = values[row].length;
+        return n == 0 ? 0 : (int) ((long) index * columns() / n);
+    }
+
+    /**
+     * Make sure the display is repainted on the next pulse
+     */
+    private void requestPaint() {
+        if (!painting) {
+            painting = true;
+            painter.start();
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        final double x = snappedLeftInset();
+        final double y = snappedTopInset();
+        final double w = Math.floor(getWidth() - x - snappedRightInset());
+        final double h = Math.floor(getHeight() - y - snappedBottomInset());
+
+        canvas.relocate(x, y);
+        if (w != canvas.getWidth() || h != canvas.getHeight()) {
+            canvas.setWidth(Math.max(0, w));
+            canvas.setHeight(Math.max(0, h));
+            resize();
+        }
+    }
+
+    /**
+     * Start over after the size of the canvas or arrays has changed
+     */
+    private void resize() {
+        final int cols = columns();
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            columnMin[row] = new int[cols];
+            columnMax[row] = new int[cols];
+            columnAccess[row] = new float[cols];
+            columnChange[row] = new float[cols];
+            columnColor[row] = new byte[cols];
+        }
+        invalidate();
+    }
+
+    /**
+     * Rescan every column and repaint the whole display on the next pulse
+     */
+    private void invalidate() {
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            stale[row].set(0, columns());
+        }
+        fullRepaint = true;
+        requestPaint();
+    }
+
+    /**
+     * Fade the highlights by the time since the last pulse, and find the
+     * brightest highlight in each column. The columns of the faded elements
+     * are marked to be repainted.
+     *
+     * @param now the time of this pulse in nanoseconds
+     */
+    private void fade(long now) {
+        final long elapsed = lastPulse == 0 ? 0 : now - lastPulse;
+        lastPulse = now;
+
+        final float accessFade = (float) (elapsed / ACCESS_FADE);
+        final float changeFade = (float) (elapsed / CHANGE_FADE);
+        final int cols = columns();
+
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            final BitSet g = glowing[row];
+            final float[] a = accessGlow[row];
+            final float[] c = changeGlow[row];
+            final byte[] w = accessColor[row];
+            final float[] ca = columnAccess[row];
+            final float[] cc = columnChange[row];
+            final byte[] cw = columnColor[row];
+
+            Arrays.fill(ca, 0);
+            Arrays.fill(cc, 0);
+
+            for (int i = g.nextSetBit(0); i >= 0; i = g.nextSetBit(i + 1)) {
+                a[i] = Math.max(0, a[i] - accessFade);
+                c[i] = Math.max(0, c[i] - changeFade);
+                if (a[i] == 0 && c[i] == 0) {
+                    g.clear(i);
+                }
+
+                final int from = firstColumn(row, i);
+                final int to = Math.min(cols,
+                        Math.max(from + 1, firstColumn(row, i + 1)));
+                for (int col = from; col < to; col++) {
+                    if (a[i] > ca[col]) {
+                        ca[col] = a[i];
+                        cw[col] = w[i];
+                    }
+                    cc[col] = Math.max(cc[col], c[i]);
+                }
+                dirty[row].set(Math.min(from, cols), to);
+            }
+        }
+    }
+
+    /**
+     * Fade the highlights and repaint every dirty column
+     *
+     * @param now the time of this pulse in nanoseconds
+     */
+    private void paint(long now) {
+        fade(now);
+
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        final boolean split = values[SCRATCH].length > 0;
+        final double height = canvas.getHeight();
+        final double scratchHeight = scratchHeight(height);
+
+        if (fullRepaint) {
+            fullRepaint = false;
+            gc.clearRect(0, 0, canvas.getWidth(), height);
+            dirty[MAIN].set(0, columns());
+            dirty[SCRATCH].clear();
+            if (split) {
+                dirty[SCRATCH].set(0, columns());
+            }
+        }
+
+        for (int row = MAIN; row <= SCRATCH; row++) {
+            final double top = row == SCRATCH ? 0 : scratchHeight;
+            final double rowHeight = row == SCRATCH ? scratchHeight
+                    : height - scratchHeight;
+            final BitSet d = dirty[row];
+
+            for (int c = d.nextSetBit(0); c >= 0; c = d.nextSetBit(c + 1)) {
+                paintColumn(gc, row, c, top, rowHeight);
+            }
+            d.clear();
+        }
+
+        if (glowing[MAIN].isEmpty() && glowing[SCRATCH].isEmpty()) {
+            // Nothing left to fade, wait for the next change
+            painter.stop();
+            painting = false;
+            lastPulse = 0;
+        }
+    }
+
+    /**
+     * Get the height of the row showing the scratch array. A scratch array as
+     * long as the main array gets half of the canvas, a shorter one gets a
+     * share in proportion to its length, but never less than MIN_SCRATCH_SHARE.
+     *
+     * @param height the height of the canvas
+     * @return the height of the scratch row, 0 if there is no scratch array
+     */
+    private double scratchHeight(double height) {
+        final int scratch = values[SCRATCH].length;
+        if (scratch == 0) {
+            return 0;
+        }
+
+        final double share = (double) scratch
+                / (scratch + values[MAIN].length);
+        return Math.floor(height * Math.max(MIN_SCRATCH_SHARE, share));
+    }
+
+    /**
+     * Paint one pixel column of a row
+     */
+    private void paintColumn(GraphicsContext gc, int row, int col, double top,
+            double rowHeight) {
+        final int[] vals = values[row];
+        final int n = vals.length;
+        final int cols = columns();
+
+        gc.clearRect(col, top, 1, rowHeight);
+        if (n == 0) {
+            return;
+        }
+
+        int min;
+        int max;
+        if (aggregated(row)) {
+            if (stale[row].get(col)) {
+                rescan(row, col);
+            }
+            min = columnMin[row][col];
+            max = columnMax[row][col];
+        } else {
+            // The one element covering this column
+            final int i = (int) (((long) (col + 1) * n + cols - 1) / cols) - 1;
+
+            // Leave the last column of wide bars empty to separate them
+            if (cols >= n * MIN_GAPPED_WIDTH
+                    && firstColumn(row, i + 1) == col + 1) {
+                return;
+            }
+
+            min = vals[i];
+            max = min;
+        }
+        if (max == EMPTY) {
+            return;
+        }
+
+        final int w = columnColor[row][col];
+        final int a = level(columnAccess[row][col]);
+        final int c = level(columnChange[row][col]);
+        final double bottom = top + rowHeight;
+
+        final double maxHeight = barHeight(max, rowHeight);
+        if (min != max) {
+            gc.setFill(RANGE_COLORS[w][a][c]);
+            gc.fillRect(col, bottom - maxHeight, 1, maxHeight);
+        }
+
+        final double minHeight = barHeight(min, rowHeight);
+        gc.setFill(COLORS[w][a][c]);
+        gc.fillRect(col, bottom - minHeight, 1, minHeight);
+    }
+
+    /**
+     * Find the smallest and largest values in a column again
+     */
+    private void rescan(int row, int col) {
+        final int[] vals = values[row];
+        final int n = vals.length;
+        final int cols = columns();
+
+        final int from = (int) (((long) col * n + cols - 1) / cols);
+        final int to = (int) Math.min(n, ((long) (col + 1) * n + cols - 1)
+                / cols);
+
+        int min = Integer.MAX_VALUE;
+        int max = EMPTY;
+        for (int i = from; i < to; i++) {
+            final int v = vals[i];
+            if (v != EMPTY) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+
+        columnMin[row][col] = min;
+        columnMax[row][col] = max;
+        stale[row].clear(col);
+    }
+
+    /**
+     * Get the height of the bar showing a value
+     */
+    private double barHeight(int value, double rowHeight) {
+        return Math.max(1,
+                Math.round((value + 1.0) * rowHeight / (maxValue + 1)));
+    }
+
+    /**
+     * Get the color level to show a highlight intensity with
+     */
+    private static int level(float intensity) {
+        return (int) Math.ceil(intensity * (LEVELS - 1));
+    }
+}
@@ -0,0 +1,96 @@
+package run.mycode.sortdemo.ui;
+
+import javafx.beans.binding.Bindings;
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.layout.BorderPane;
+import run.mycode.sortdemo.sort.SorterRegistry;
+import run.mycode.sortdemo.sort.SteppableSorter;
+import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+
+/**
+ * One lane of a race between sorting algorithms: a display of the lane's own
+ * copy of the data, headed by the name of the algorithm and the number of
+ * array accesses it has made so far.
+ *
+ * @author bdahl
+ */
+class RaceLane extends BorderPane {
+
+    private final String name;
+    private final SteppableSorter<Integer> sorter;
+    private final Label title;
+
+    /**
+     * Prepare a sorter to race on a copy of the data
+     *
+     * @param name the name of the sorting algorithm
+     * @param sortClass the sorting algorithm to race
+     * @param values the data to sort, which is copied
+     */
+    @SuppressWarnings("rawtypes")
+    RaceLane(String name, Class<? extends SteppableSorter> sortClass,
+            int[] values) {
+        this.name = name;
+
+        final DemoIntArray array = new DemoIntArray(values);
+        sorter = SorterRegistry.create(sortClass, array);
+
+        final BarCanvas display = new BarCanvas();
+        display.setStyle("-fx-border-color: #000; -fx-background-color: #fff;");
+        display.setMinSize(0, 0);
+
+        if (sorter.usesScratchArray()) {
+            // Count the scratch array's operations along with the main array's
+            DemoArray<Integer> tmp = sorter.getScratchArray();
+            tmp.shareCounts(array.getCounts());
+            display.setData(values, tmp.length());
+            display.watch(tmp, BarCanvas.SCRATCH);
+        } else {
+            display.setData(values, 0);
+        }
+        display.watch(array, BarCanvas.MAIN);
+
+        title = new Label(name);
+        final Label accesses = new Label();
+        accesses.textProperty().bind(Bindings.format("%,d accesses",
+                array.getAccessesProperty()));
+
+        setTop(new BorderPane(null, null, accesses, null, title));
+        setCenter(display);
+        setPadding(new Insets(5));
+    }
+
+    /**
+     * Get the sorter racing in this lane
+     *
+     * @return the sorter
+     */
+    SteppableSorter<Integer> getSorter() {
+        return sorter;
+    }
+
+    /**
+     * Show where the sorter finished the race, and how long it took if it ran
+     * unthrottled
+     *
+     * @param place 1 for the first sorter to finish, 2 for the second, ...
+     */
+    void finish(int place) {
+        String text = place + ". " + name;
+        if (sorter.isUnthrottled() && sorter.getElapsedNanos() >= 0) {
+            text += String.format(" (%.3fms)", sorter.getElapsedNanos() / 1e6);
+        }
+        title.setText(text);
+    }
+
+    /**
+     * Show that the sorter failed, and what made it fail
+     *
+     * @param failure the exception or error that ended the sort
+     */
+    void fail(Throwable failure) {
+        title.setText(name + " failed: " + failure.getClass().getSimpleName());
+    }
+}
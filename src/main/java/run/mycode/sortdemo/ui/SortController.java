@@ -1,41 +1,63 @@
 package run.mycode.sortdemo.ui;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.ResourceBundle;
-import java.util.Set;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.binding.Bindings;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
 import javafx.scene.Parent;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
-import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.RowConstraints;
 import javafx.util.Duration;
-import org.reflections.Reflections;
+import javafx.util.StringConverter;
+import run.mycode.sortdemo.sort.SorterRegistry;
 import run.mycode.sortdemo.sort.SteppableSorter;
+import run.mycode.sortdemo.util.DataLayout;
 import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+import run.mycode.sortdemo.util.TracePlayer;
+import run.mycode.sortdemo.util.TraceReader;
+import run.mycode.sortdemo.util.TraceWriter;
 
 public class SortController implements Initializable {
 
-    private final int NUM_BARS = 100;
-    private final double CYCLE_TIME = 5;
-    private final double ACCESS_DIEOFF = 100;
-    private final double CHANGE_DIEOFF = 200;
+    private final Integer[] SIZES = {10, 100, 1_000, 10_000, 100_000,
+        1_000_000, 4_000_000};
+    private final int DEFAULT_SIZE = 100;
+    private final int MAX_REPLAY_SIZE = 100_000;  // larger sorts aren't recorded
+    private final long MAX_REPLAY_OPERATIONS = 10_000_000;  // nor longer ones
+    private final int MAX_RACE_SIZE = 1_000_000;  // larger races won't fit
+    private final double MAX_SPEED = 4;         // log10 of the most steps per frame
+    private final long FRAME_BUDGET = 8000;     // microseconds of sorting per frame at top speed
+    private final double REPLAY_SECONDS = 10;
+    private final double REPLAY_FRAME_TIME = 16;
 
     @FXML
-    private Pane barDisplay;
+    private BarCanvas barDisplay;
+
+    @FXML
+    private GridPane raceGrid;
 
     @FXML
     private ChoiceBox<String> sortChoice;
@@ -43,6 +65,9 @@ public class SortController implements Initializable {
     @FXML
     private ChoiceBox<DataLayout> dataChoice;
 
+    @FXML
+    private ChoiceBox<Integer> sizeChoice;
+
     @FXML
     private Parent stats;
 
@@ -61,18 +86,52 @@ public class SortController implements Initializable {
     @FXML
     private Label comps;
 
+    @FXML
+    private Label bucketWrites;
+
+    @FXML
+    private Label bytesRead;
+
+    @FXML
+    private Label bytesWritten;
+
+    @FXML
+    private Label passes;
+
     @FXML
     private Label time;
 
-    private final List<Class<SteppableSorter>> algorithms;
-    private final Map<String, Class<SteppableSorter>> sortMap;
-    private boolean halfHeight;
+    @FXML
+    private CheckBox unthrottledBox;
+
+    @FXML
+    private Slider speedSlider;
+
+    @FXML
+    private Label speedLabel;
+
+    @FXML
+    private Slider replaySlider;
+
+    @FXML
+    private Button replayButton;
+
+    private final List<Class<? extends SteppableSorter>> algorithms;
+    private final Map<String, Class<? extends SteppableSorter>> sortMap;
     private volatile boolean interrupted;
-    private volatile SteppableSorter<SortableBar> sorter;
+    private volatile SteppableSorter<Integer> sorter;
+    private final List<RaceLane> lanes;
+    private AnimationTimer raceAnimation;
+
+    private Path traceFile;
+    private TraceWriter recorder;
+    private TracePlayer player;
+    private Timeline replayAnimation;
 
     public SortController() {
         algorithms = new ArrayList<>();
-        sortMap = new HashMap<>();
+        sortMap = new LinkedHashMap<>();
+        lanes = new ArrayList<>();
     }
 
     /**
@@ -92,9 +151,13 @@ public class SortController implements Initializable {
             sorter.interrupt();
             sorter = null;
         }
+        stopRace();
 
-        if (!("All".equals(sortName))) {
-            Class<SteppableSorter> sortAlgorithm = sortMap.get(sortName);
+        if ("Race".equals(sortName)) {
+            // Run every algorithm at once, side by side
+            raceSorts(startingSort);
+        } else if (!("All".equals(sortName))) {
+            Class<? extends SteppableSorter> sortAlgorithm = sortMap.get(sortName);
             // If a particular sort was chosen, demonstrate it
             demoSort(startingSort, sortAlgorithm, null);
         } else {
@@ -105,19 +168,12 @@ public class SortController implements Initializable {
 
             // Loop through all the available algrithms in reverse order
             for (int i = algorithms.size() - 1; i >= 0; i--) {
-                Class<SteppableSorter> sortClass = algorithms.get(i);
+                Class<? extends SteppableSorter> sortClass = algorithms.get(i);
 
                 // When it is this algorithm's turn,
                 final Runnable nextSort = thisSort;
                 thisSort = () -> {
-                    String name;
-                    try {
-                        Field nameField = sortClass.getField("NAME");
-                        sortChoice.setValue((String) nameField.get(null));
-                    } catch (IllegalArgumentException | IllegalAccessException
-                            | NoSuchFieldException | SecurityException ex) {
-                        sortChoice.setValue(sortClass.getSimpleName());
-                    }
+                    sortChoice.setValue(SorterRegistry.nameOf(sortClass));
                     demoSort(startingSort, sortClass, nextSort);  // Then perform the sort demo
                 };
             }
@@ -137,84 +193,278 @@ public class SortController implements Initializable {
      *
      * @return the name of the sorting algorithm
      */
-    @SuppressWarnings("unchecked")
     private void demoSort(DataLayout startingSortType,
-            Class<SteppableSorter> sortAlgorithm, Runnable whenDone) {
+            Class<? extends SteppableSorter> sortAlgorithm, Runnable whenDone) {
+
+        // Forget the previous sort's replay
+        discardReplay();
+        showRace(false);
 
         try {
             // Prepare the array for sorting
-            final DemoArray<SortableBar> array = initBarArray(startingSortType, false);
+            final DemoIntArray array = initArray(startingSortType);
 
             // Construct the proper sorter
-            Constructor sortConst = sortAlgorithm.getConstructor(DemoArray.class);
-            sorter = (SteppableSorter<SortableBar>) sortConst.newInstance(array);
+            sorter = SorterRegistry.create(sortAlgorithm, array);
 
-            halfHeight = sorter.usesScratchArray();
+            // An unthrottled sort is only run for its timing, don't slow it
+            if (array.length() <= MAX_REPLAY_SIZE
+                    && !unthrottledBox.isSelected()) {
+                startRecording(sortChoice.getValue(), startingSortType, array,
+                        sorter.getScratchArray());
+            }
 
-            if (halfHeight) {
-                // If the algorithm uses two arrays, prepare to display using 
-                // two half height displays
-                DemoArray<SortableBar> tmp = sorter.getScratchArray();
-                initEvents(tmp, true);
+            // Only this sort's trace may be stopped or replayed when it ends,
+            // a newer sort may have started recording its own by then
+            final TraceWriter thisRecorder = recorder;
+            final Path thisTrace = traceFile;
+
+            if (sorter.usesScratchArray()) {
+                // If the algorithm uses two arrays, display the scratch array
+                // above the main array
+                DemoArray<Integer> tmp = sorter.getScratchArray();
+                barDisplay.setData(array.toIntArray(), tmp.length());
+                barDisplay.watch(tmp, BarCanvas.SCRATCH);
                 connectData(array, tmp); // Hook up instrumentation from both arrays
             } else {
                 connectData(array);   // Hook up instrumentation from the array
             }
 
-            redraw();
-
             final long startTime = System.nanoTime();
             time.setText("0ms");
             
             // Get a final reference for the lambda
-            final SteppableSorter<SortableBar> thisSorter = sorter;
+            final SteppableSorter<Integer> thisSorter = sorter;
             
-            // Set up a timeline to repeatedly step through the sorting algorithm
-            final Timeline sortAnimation = new Timeline();
-            sortAnimation.getKeyFrames().add(new KeyFrame(
-                    Duration.millis(CYCLE_TIME), // The time between steps in the algorithm
-                    ae -> {
-                        // Update the time display
-                        long elapsed = (System.nanoTime() - startTime) / 1_000_000;
-                        time.setText(elapsed + "ms");
-
-                        if (thisSorter.isInterrupted()) {
-                            sortAnimation.stop();
+            // Set up a timer to step through the sorting algorithm every frame
+            final AnimationTimer sortAnimation = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    // Update the time display
+                    long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+                    time.setText(elapsed + "ms");
+
+                    if (thisSorter.isInterrupted()) {
+                        stop();
+                        stopRecording(thisRecorder);
+
+                        // A sort that failed is reported, and the next one
+                        // still gets its turn
+                        if (thisSorter.getFailure() != null) {
+                            time.setText("Failed: " + thisSorter.getFailure()
+                                    .getClass().getSimpleName());
+                            runLater(whenDone);
                         }
-                        else if (interrupted) {
-                            thisSorter.interrupt();
+                    }
+                    else if (interrupted) {
+                        thisSorter.interrupt();
+                    }
+                    else if (!thisSorter.isSorted()) { // If there is more sorting to do
+                        if (!thisSorter.isUnthrottled()) {
+                            // perform the next steps
+                            stepSorters(Collections.singletonList(thisSorter));
                         }
-                        else if (!thisSorter.isSorted()) { // If there is more sorting to do
-                            thisSorter.step();        // perform the next step
-                        } else {                  // If sorting is complete
-                            sortAnimation.stop();   // Stop the animation
-
-                            if (whenDone != null) { // and call any provided callback
-                                Timeline waitForIt
-                                = new Timeline(
-                                        new KeyFrame( // after 1 second 
-                                                Duration.millis(1000),
-                                                e -> whenDone.run()
-                                        )
-                                );
-                                waitForIt.setCycleCount(1);
-                                waitForIt.play();
-                            }
+                    } else if (thisSorter.isUnthrottled()
+                            && thisSorter.getElapsedNanos() < 0) {
+                        // Wait for the sort to report how long it took
+                    } else {                  // If sorting is complete
+                        stop();                 // Stop the animation
+                        if (thisSorter.isUnthrottled()) {
+                            showSortTime(thisSorter);
                         }
-                    })
-            );
+                        // and allow replaying it
+                        finishRecording(thisRecorder, thisTrace);
+
+                        runLater(whenDone); // and call any provided callback
+                    }
+                }
+            };
+
+            // An unthrottled sort runs by itself, the animation only shows its
+            // progress
+            if (unthrottledBox.isSelected()) {
+                thisSorter.runUnthrottled();
+            }
 
             // Start the sorting animation running, we'll stop it when we know its
             // done
-            sortAnimation.setCycleCount(Timeline.INDEFINITE);
-            sortAnimation.play();
-        } catch (NoSuchMethodException | InstantiationException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException ex) {
+            sortAnimation.start();
+        } catch (IllegalArgumentException ex) {
             throw new AssertionError(ex);
         }
     }
 
+    /**
+     * Call a callback a second after a sort ends
+     *
+     * @param whenDone the callback to make, if any
+     */
+    private void runLater(Runnable whenDone) {
+        if (whenDone != null) {
+            Timeline waitForIt
+            = new Timeline(
+                    new KeyFrame( // after 1 second 
+                            Duration.millis(1000),
+                            e -> whenDone.run()
+                    )
+            );
+            waitForIt.setCycleCount(1);
+            waitForIt.play();
+        }
+    }
+
+    /**
+     * Race all of the sorting algorithms against each other, each sorting its
+     * own copy of the same data in its own lane of the display. Every sorter
+     * is given the same number of steps each frame, and the sorters run on
+     * their own threads, so they make progress at the same time. Races are
+     * kept to MAX_RACE_SIZE elements, and slow sorters only race on arrays
+     * up to their SorterRegistry.maxSize.
+     *
+     * @param startingSortType The initial layout of the data
+     */
+    private void raceSorts(DataLayout startingSortType) {
+        discardReplay();
+
+        // Every lane has its own arrays, keep them within memory
+        if (sizeChoice.getValue() > MAX_RACE_SIZE) {
+            sizeChoice.setValue(MAX_RACE_SIZE);
+        }
+        final int[] values = arrangeValues(startingSortType);
+
+        // Leave out the slow sorters that would never finish
+        final List<Class<? extends SteppableSorter>> racers = new ArrayList<>();
+        for (Class<? extends SteppableSorter> sortClass : algorithms) {
+            if (values.length <= SorterRegistry.maxSize(sortClass)) {
+                racers.add(sortClass);
+            }
+        }
+
+        // Lay the lanes out in a grid that is about as wide as it is tall
+        final int cols = (int) Math.ceil(Math.sqrt(racers.size()));
+        final int rows = (racers.size() + cols - 1) / cols;
+        raceGrid.getChildren().clear();
+        raceGrid.getColumnConstraints().clear();
+        raceGrid.getRowConstraints().clear();
+        for (int c = 0; c < cols; c++) {
+            ColumnConstraints cc = new ColumnConstraints();
+            cc.setPercentWidth(100.0 / cols);
+            raceGrid.getColumnConstraints().add(cc);
+        }
+        for (int r = 0; r < rows; r++) {
+            RowConstraints rc = new RowConstraints();
+            rc.setPercentHeight(100.0 / rows);
+            raceGrid.getRowConstraints().add(rc);
+        }
+
+        lanes.clear();
+        for (Class<? extends SteppableSorter> sortClass : racers) {
+            RaceLane lane = new RaceLane(SorterRegistry.nameOf(sortClass),
+                    sortClass, values);
+            raceGrid.add(lane, lanes.size() % cols, lanes.size() / cols);
+            lanes.add(lane);
+        }
+        showRace(true);
+
+        // Each lane shows its own counts
+        clearStats();
+
+        final long startTime = System.nanoTime();
+        time.setText("0ms");
+
+        // The lanes that haven't finished yet, in the order they were created
+        final List<RaceLane> racing = new ArrayList<>(lanes);
+
+        final AnimationTimer race = new AnimationTimer() {
+            private int place = 0;
+
+            @Override
+            public void handle(long now) {
+                long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+                time.setText(elapsed + "ms");
+
+                if (interrupted) {
+                    stopRace();
+                    return;
+                }
+
+                final List<SteppableSorter<Integer>> stepping
+                        = new ArrayList<>();
+                for (RaceLane lane : new ArrayList<>(racing)) {
+                    SteppableSorter<Integer> s = lane.getSorter();
+                    if (s.isInterrupted()) {
+                        if (s.getFailure() != null) {
+                            lane.fail(s.getFailure());
+                        }
+                        racing.remove(lane);
+                    } else if (!s.isSorted()) {
+                        if (!s.isUnthrottled()) {
+                            stepping.add(s);
+                        }
+                    } else if (!s.isUnthrottled() || s.getElapsedNanos() >= 0) {
+                        // Finished, and any timing has been reported
+                        lane.finish(++place);
+                        racing.remove(lane);
+                    }
+                }
+
+                if (racing.isEmpty()) {
+                    stop();
+                    raceAnimation = null;
+                } else if (!stepping.isEmpty()) {
+                    stepSorters(stepping);
+                }
+            }
+        };
+
+        if (unthrottledBox.isSelected()) {
+            lanes.forEach(lane -> lane.getSorter().runUnthrottled());
+        }
+
+        raceAnimation = race;
+        race.start();
+    }
+
+    /**
+     * Stop any race that is in progress
+     */
+    private void stopRace() {
+        if (raceAnimation != null) {
+            raceAnimation.stop();
+            raceAnimation = null;
+        }
+        lanes.forEach(lane -> lane.getSorter().interrupt());
+    }
+
+    /**
+     * Switch the display between the lanes of a race and the single bar
+     * display. The lanes of the last race are kept until a single sort is
+     * shown.
+     *
+     * @param racing true to show the race lanes
+     */
+    private void showRace(boolean racing) {
+        raceGrid.setVisible(racing);
+        barDisplay.setVisible(!racing);
+
+        if (!racing) {
+            lanes.clear();
+            raceGrid.getChildren().clear();
+        }
+    }
+
+    /**
+     * Check if a sort or race is in progress
+     *
+     * @return true if a sorter is still running
+     */
+    private boolean isSorting() {
+        if (sorter != null && !sorter.isSorted() && !sorter.isInterrupted()) {
+            return true;
+        }
+        return raceAnimation != null;
+    }
+
     /**
      * Set up the scene
      *
@@ -222,207 +472,355 @@ public class SortController implements Initializable {
      * @param rb unused
      */
     @Override
-    @SuppressWarnings("unchecked")
     public void initialize(URL url, ResourceBundle rb) {
 
-        Reflections reflections = new Reflections("run.mycode.sortdemo");
-        Set<Class<? extends SteppableSorter>> classes
-                = reflections.getSubTypesOf(SteppableSorter.class);
-        classes.forEach(c -> {
-            algorithms.add((Class<SteppableSorter>) c);
-
-            String name;
-            try {
-                Field nameField = c.getField("NAME");
-                name = (String) nameField.get(null);
-            } catch (IllegalArgumentException | IllegalAccessException
-                    | NoSuchFieldException | SecurityException ex) {
-                name = c.getSimpleName();
-            }
-            sortMap.put(name, (Class<SteppableSorter>) c);
-        });
+        sortMap.putAll(SorterRegistry.findSorters());
+        algorithms.addAll(sortMap.values());
 
         // Set up the choiceboxes with the appropriate values and preselect 
         // the first option
         sortChoice.getItems().add("All");
+        sortChoice.getItems().add("Race");
         sortMap.entrySet().forEach(e -> sortChoice.getItems().add(e.getKey()));
         sortChoice.getSelectionModel().select(0);
         dataChoice.getItems().addAll(DataLayout.values());
         dataChoice.getSelectionModel().select(0);
+        sizeChoice.setConverter(new StringConverter<Integer>() {
+            @Override
+            public String toString(Integer size) {
+                return String.format("%,d", size);
+            }
+
+            @Override
+            public Integer fromString(String text) {
+                return Integer.valueOf(text.replaceAll("[^0-9]", ""));
+            }
+        });
+        sizeChoice.getItems().addAll(SIZES);
+        sizeChoice.setValue(DEFAULT_SIZE);
+
+        // Show bars of a newly chosen size unless a sort is in progress
+        sizeChoice.valueProperty().addListener(e -> {
+            if (!isSorting()) {
+                showRace(false);
+                initArray(DataLayout.SORTED);
+            }
+        });
+
+        // The speed slider sets the number of steps per frame on a log scale
+        speedSlider.setMax(MAX_SPEED);
+        speedSlider.valueProperty().addListener(e -> showSpeed());
+        showSpeed();
+
+        // Scrubbing the replay slider shows that point of the last sort
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (player != null) {
+                player.seek(newVal.longValue());
+                showReplay();
+            }
+        });
 
-        // Setup listeners to handle resizing the window
-        barDisplay.widthProperty().addListener(ae -> redraw());
-        barDisplay.heightProperty().addListener(ae -> redraw());
-
-        // prepare a display of sorted bars once the UI has been fully inited
-        Timeline showBars = new Timeline(
-                new KeyFrame(
-                        Duration.millis(1),
-                        ae -> {
-                            this.initBarArray(DataLayout.SORTED, false);
-                        })
-        );
-        showBars.setCycleCount(1);
-        showBars.play();
+        // Show sorted bars until the first sort begins
+        initArray(DataLayout.SORTED);
     }
     
+    /**
+     * Display the time an unthrottled sort took to run
+     *
+     * @param s the finished sort
+     */
+    private void showSortTime(SteppableSorter<?> s) {
+        String text = String.format("%.3fms", s.getElapsedNanos() / 1e6);
+        if (s.getCpuNanos() >= 0) {
+            text += String.format(" (CPU %.3fms)", s.getCpuNanos() / 1e6);
+        }
+        time.setText(text);
+    }
+
+    /**
+     * Advance sorts by one frame's worth of steps, based on the speed slider.
+     * Each sort is given the same number of steps.
+     *
+     * @param sorters the sorts to advance
+     */
+    private void stepSorters(Collection<? extends SteppableSorter<?>> sorters) {
+        if (speedSlider.getValue() >= MAX_SPEED) {
+            // As many steps as fit in the frame
+            SteppableSorter.stepAllFor(sorters, FRAME_BUDGET);
+        } else {
+            final int steps = stepsPerFrame();
+            sorters.forEach(s -> s.step(steps));
+        }
+    }
+
+    /**
+     * Get the number of steps to perform each frame, based on the speed slider
+     *
+     * @return the number of steps per frame
+     */
+    private int stepsPerFrame() {
+        return (int) Math.round(Math.pow(10, speedSlider.getValue()));
+    }
+
+    /**
+     * Show the speed chosen on the speed slider
+     */
+    private void showSpeed() {
+        if (speedSlider.getValue() >= MAX_SPEED) {
+            speedLabel.setText("Max");
+        } else {
+            speedLabel.setText(stepsPerFrame() + " / frame");
+        }
+    }
+
     public void shutdown() {
         interrupted = true;
+        discardReplay();
     }
 
     /**
-     * Redraw the sorting display
+     * Begin recording a trace of a sort, so that it can be replayed once the
+     * sort is complete
+     *
+     * @param name the name of the sorting algorithm
+     * @param layout the initial layout of the data
+     * @param array the array being sorted
+     * @param scratch the scratch array used by the sort, may be null
      */
-    public void redraw() {
-        // Determine the bottom positions for the bars
-        double bottom = barDisplay.getHeight();
-        double halfPos = bottom / 2;
-
-        // Calculate the sizing units for the bars
-        final double maxHeight = halfHeight ? barDisplay.getHeight() / 2
-                : barDisplay.getHeight();
-        final double barWidth = barDisplay.getWidth() / NUM_BARS;
-        final double unitHeight = maxHeight / NUM_BARS;
-
-        // Readjust all of the bars
-        final List<Node> bars = barDisplay.getChildren();
-        bars.stream().filter(n -> n instanceof SortableBar)
-                .forEach(n -> {
-                    SortableBar bar = (SortableBar) n;
-
-                    bar.setHeight((bar.getValue() + 1) * unitHeight);
-
-                    // Calculate the bar's index from its position on screen
-                    double idx = bar.getTranslateX() / bar.getWidth();
-
-                    // Use the index and the bar's new width to set its position
-                    bar.setWidth(barWidth);
-                    bar.setTranslateX(idx * barWidth);
-
-                    // Determine if the bar is in the top or bottom half of the screen\
-                    // and move it to the correct location
-                    if (bar.getLayoutY() == 0) {    // the top half is measured from y=0
-                        bar.setTranslateY(halfPos - bar.getHeight());
-                    } else {                        // the bottom half is measured from
-                        bar.setLayoutY(bottom);     // the bottom of the display
-                        bar.setTranslateY(-bar.getHeight());
-                    }
-                });
+    private void startRecording(String name, DataLayout layout,
+            DemoArray<Integer> array, DemoArray<Integer> scratch) {
+        try {
+            traceFile = Files.createTempFile("sortdemo", ".trace");
+            traceFile.toFile().deleteOnExit();
+            recorder = new TraceWriter(traceFile, name, layout.toString(),
+                    array, scratch);
+            recorder.setMaxRecords(MAX_REPLAY_OPERATIONS);
+        } catch (IOException ex) {
+            // Without a trace the sort just can't be replayed
+            discardReplay();
+        }
     }
 
     /**
-     * Prepare an array of SortableBars
-     *
-     * @param initialLayout the starting ordering of the data
-     * @param topHalf true if these bars will occupy the top half of the display
-     * @return An initialized array filled with
+     * Stop recording the current sort's trace
      */
-    private DemoArray<SortableBar> initBarArray(DataLayout initialLayout,
-            boolean topHalf) {
-        // Clear out anything currently being displayed
-        barDisplay.getChildren().clear();
+    private void stopRecording() {
+        stopRecording(recorder);
+    }
 
-        // Create a normal array for preparing the bars
-        SortableBar[] bars = new SortableBar[NUM_BARS];
+    /**
+     * Stop recording a sort's trace
+     *
+     * @param writer the sort's trace writer, may be null
+     */
+    private void stopRecording(TraceWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // The trace will be discarded or fail to open
+            }
+            if (recorder == writer) {
+                recorder = null;
+            }
+        }
+    }
 
-        // Initialize the bars in sorted order
-        for (int i = 0; i < NUM_BARS; i++) {
-            bars[i] = new SortableBar(i);
+    /**
+     * Finish recording a sort's trace and prepare to replay it, unless
+     * another sort has been started since or the trace was too long to keep.
+     * The trace is read in the background, and can be replayed once it has
+     * been read.
+     *
+     * @param writer the sort's trace writer, may be null
+     * @param file the file the trace was written to
+     */
+    private void finishRecording(TraceWriter writer, Path file) {
+        if (writer == null || writer != recorder) {
+            stopRecording(writer);
+            return;
         }
+        stopRecording(writer);
 
-        // Reorganize the bars based on the chosen layout
-        switch (initialLayout) {
-            case RANDOM:
-                randomize(bars);
-                break;
-            case REVERSED:
-                reverse(bars);
-                break;
-            case SORTED:
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown data order: "
-                        + initialLayout.toString());
+        if (writer.isTruncated()) {
+            discardReplay();
+            return;
         }
 
-        // Determine the actual sizing for the bars
-        final double bottom = barDisplay.getHeight();
-        final double maxHeight = halfHeight ? barDisplay.getHeight() / 2
-                : barDisplay.getHeight();
-        final double unitHeight = maxHeight / bars.length;
-        final double barWidth = barDisplay.getWidth() / bars.length;
+        final Task<TracePlayer> load = new Task<TracePlayer>() {
+            @Override
+            protected TracePlayer call() throws IOException {
+                return new TracePlayer(new TraceReader(file));
+            }
+        };
+
+        load.setOnSucceeded(e -> {
+            if (!file.equals(traceFile)) {
+                // The replay was discarded while the trace was being read
+                try {
+                    load.getValue().getTrace().close();
+                } catch (IOException ignored) {
+                    // Nothing else can be done
+                }
+                return;
+            }
+
+            player = load.getValue();
+            replaySlider.setMax(player.length());
+            replaySlider.setValue(player.length());
+            replaySlider.setDisable(false);
+            replayButton.setDisable(false);
+        });
+
+        load.setOnFailed(e -> {
+            if (file.equals(traceFile)) {
+                discardReplay();
+            }
+        });
 
-        // Size and move the bars
-        for (int i = 0; i < bars.length; i++) {
-            bars[i].setWidth(barWidth);
-            bars[i].setHeight(unitHeight * (bars[i].getValue() + 1));
+        final Thread loader = new Thread(load, "trace-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
 
-            bars[i].setTranslateX(barWidth * i);
+    /**
+     * Stop any replay and delete the recorded trace
+     */
+    private void discardReplay() {
+        stopRecording();
 
-            if (topHalf) {
-                bars[i].setTranslateY(bottom - bars[i].getHeight());
-                bars[i].setLayoutY(0);
-            } else {
-                bars[i].setTranslateY(-bars[i].getHeight());
-                bars[i].setLayoutY(bottom);
+        if (replayAnimation != null) {
+            replayAnimation.stop();
+            replayAnimation = null;
+        }
+        replaySlider.setDisable(true);
+        replayButton.setDisable(true);
+
+        if (player != null) {
+            try {
+                player.getTrace().close();
+            } catch (IOException ignored) {
+                // Nothing else can be done
             }
+            player = null;
+        }
 
-            barDisplay.getChildren().add(bars[i]);
+        if (traceFile != null) {
+            try {
+                Files.deleteIfExists(traceFile);
+            } catch (IOException ignored) {
+                // The file will be deleted on exit
+            }
+            traceFile = null;
         }
+    }
 
-        // Encapsulate the array of bars into a DemoArray
-        DemoArray<SortableBar> array = new DemoArray<>(bars);
+    /**
+     * Handle the user clicking on the Play button by replaying the last sort
+     * from the current replay position, at a speed that takes the same time
+     * no matter how many operations the sort performed
+     *
+     * @param event unused
+     */
+    @FXML
+    private void playReplay(ActionEvent event) {
+        if (player == null) {
+            return;
+        }
 
-        // Hookup demoArray events so the bars will display properly
-        initEvents(array, topHalf);
+        if (replayAnimation != null) {
+            replayAnimation.stop();
+            replayAnimation = null;
+            return;
+        }
 
-        return array;
+        if (player.getPosition() >= player.length()) {
+            replaySlider.setValue(0);
+        }
+
+        final double frames = REPLAY_SECONDS * 1000 / REPLAY_FRAME_TIME;
+        final long stepsPerFrame = Math.max(1,
+                (long) Math.ceil(player.length() / frames));
+
+        final Timeline replay = new Timeline();
+        replay.getKeyFrames().add(new KeyFrame(
+                Duration.millis(REPLAY_FRAME_TIME),
+                ae -> {
+                    double next = Math.min(player.length(),
+                            replaySlider.getValue() + stepsPerFrame);
+                    replaySlider.setValue(next);
+
+                    if (next >= player.length()) {
+                        replay.stop();
+                        replayAnimation = null;
+                    }
+                }));
+        replay.setCycleCount(Timeline.INDEFINITE);
+        replayAnimation = replay;
+        replay.play();
+    }
+
+    /**
+     * Display the state of the replayed sort at the player's position
+     */
+    private void showReplay() {
+        barDisplay.showState(player.getMain(), player.getScratch());
     }
 
     /**
-     * Connect DemoArray events to call-backs that update the display
+     * Prepare an array of values to sort and display it
      *
-     * @param array The DemoArray to connect to
-     * @param topHalf true if this array only fills the top half of the display
+     * @param initialLayout the starting ordering of the data
+     * @return An initialized array filled with the values 0 to one less than
+     * the chosen size
      */
-    private void initEvents(DemoArray<SortableBar> array, boolean topHalf) {
-        // When an element is accessed, turn it blue for a bit
-        array.setOnAccess((idx, val) -> {
-            if (val == null) {
-                return;
-            }
-            val.fadeColor(Color.BLUE, ACCESS_DIEOFF);
-        });
+    private DemoIntArray initArray(DataLayout initialLayout) {
+        final int[] values = arrangeValues(initialLayout);
 
-        // When an element is modified, turn it red for a bit and make sure the
-        // bar is properly located in the display
-        array.setOnChange((idx, oldval, val) -> {
-            if (oldval != null && oldval != val) {
-                oldval.setVisible(false);
-            }
-            if (val == null) {
-                return;
-            }
+        // Display the values without a scratch array
+        barDisplay.setData(values, 0);
 
-            val.setVisible(true);
+        // Encapsulate the values into a DemoArray
+        DemoIntArray array = new DemoIntArray(values);
 
-            // determine the width of the bars for positioning them
-            final double barWidth = barDisplay.getWidth() / NUM_BARS;
-            final double bottom = topHalf ? barDisplay.getHeight() / 2
-                    : barDisplay.getHeight();
+        // Hookup demoArray events so the bars will display properly
+        barDisplay.watch(array, BarCanvas.MAIN);
 
-            if (topHalf) {
-                val.setLayoutY(0);
-                val.setTranslateY(bottom - val.getHeight());
-            } else {
-                val.setLayoutY(bottom);
-                val.setTranslateY(-val.getHeight());
-            }
+        return array;
+    }
+
+    /**
+     * Prepare the values to sort
+     *
+     * @param initialLayout the starting ordering of the data
+     * @return the values 0 to one less than the chosen size, in the chosen
+     * layout
+     */
+    private int[] arrangeValues(DataLayout initialLayout) {
+        // Create a normal array for preparing the values
+        final int size = sizeChoice.getValue();
+        int[] values = new int[size];
+
+        // Initialize the values in sorted order
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
 
-            val.setTranslateX(idx * barWidth);
+        // Reorganize the values based on the chosen layout
+        initialLayout.arrange(values, new Random());
+        return values;
+    }
 
-            val.fadeColor(Color.RED, CHANGE_DIEOFF);
-        });
+    /**
+     * Disconnect the instrumentation labels, for when each lane of a race
+     * shows its own counts
+     */
+    private void clearStats() {
+        for (Label l : new Label[]{accesses, reads, writes, comps, swaps,
+            bucketWrites, bytesRead, bytesWritten, passes}) {
+            l.textProperty().unbind();
+            l.setText("-");
+        }
     }
 
     /**
@@ -436,6 +834,12 @@ public class SortController implements Initializable {
         writes.textProperty().bind(arr.getPutsProperty().asString());
         comps.textProperty().bind(arr.getComparesProperty().asString());
         swaps.textProperty().bind(arr.getSwapsProperty().asString());
+        bucketWrites.textProperty()
+                .bind(arr.getBucketWritesProperty().asString());
+        bytesRead.textProperty().bind(arr.getBytesReadProperty().asString());
+        bytesWritten.textProperty()
+                .bind(arr.getBytesWrittenProperty().asString());
+        passes.textProperty().bind(arr.getPassesProperty().asString());
     }
 
     /**
@@ -462,52 +866,20 @@ public class SortController implements Initializable {
         swaps.textProperty().bind(Bindings
                 .add(arr1.getSwapsProperty(), arr2.getSwapsProperty())
                 .asString());
-    }
-
-    /**
-     * Randomly rearrange the data in an array
-     *
-     * @param arr the array to reorder
-     */
-    private void randomize(Object[] arr) {
-        for (int i = 0; i < arr.length; i++) {
-            int newPos = (int) (Math.random() * arr.length);
-            Object t = arr[i];
-            arr[i] = arr[newPos];
-            arr[newPos] = t;
-        }
-    }
-
-    /**
-     * Reverse the order of an array
-     *
-     * @param arr the array to reorder
-     */
-    private void reverse(Object[] arr) {
-        for (int i = 0; i < arr.length / 2; i++) {
-            int newPos = arr.length - i - 1;
-            Object t = arr[newPos];
-            arr[newPos] = arr[i];
-            arr[i] = t;
-        }
-    }
-
-    /**
-     * The available initial data orderings along with text descriptions
-     */
-    private static enum DataLayout {
-        RANDOM("Random"), SORTED("Sorted"), REVERSED("Reversed");
-
-        public final String text;
-
-        private DataLayout(String text) {
-            this.text = text;
-        }
-
-        @Override
-        public String toString() {
-            return this.text;
-        }
+        bucketWrites.textProperty().bind(Bindings
+                .add(arr1.getBucketWritesProperty(),
+                        arr2.getBucketWritesProperty())
+                .asString());
+        bytesRead.textProperty().bind(Bindings
+                .add(arr1.getBytesReadProperty(), arr2.getBytesReadProperty())
+                .asString());
+        bytesWritten.textProperty().bind(Bindings
+                .add(arr1.getBytesWrittenProperty(),
+                        arr2.getBytesWrittenProperty())
+                .asString());
+        passes.textProperty().bind(Bindings
+                .add(arr1.getPassesProperty(), arr2.getPassesProperty())
+                .asString());
     }
 
 }
@@ -0,0 +1,109 @@
+package run.mycode.sortdemo.util;
+
+import java.util.Random;
+
+/**
+ * The available initial data orderings along with text descriptions
+ *
+ * @author bdahl
+ */
+public enum DataLayout {
+    RANDOM("Random"), SORTED("Sorted"), REVERSED("Reversed"),
+    NEARLY_SORTED("Nearly Sorted");
+
+    // The fraction of elements moved out of place in nearly sorted data
+    private static final int NEARLY_SORTED_SWAPS = 20;    // one in this many
+
+    public final String text;
+
+    private DataLayout(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    /**
+     * Rearrange sorted data into this layout
+     *
+     * @param arr the sorted data to reorder
+     * @param rnd the source of randomness for random layouts
+     */
+    public void arrange(Object[] arr, Random rnd) {
+        switch (this) {
+            case RANDOM:
+                for (int i = 0; i < arr.length; i++) {
+                    int newPos = rnd.nextInt(arr.length);
+                    Object t = arr[i];
+                    arr[i] = arr[newPos];
+                    arr[newPos] = t;
+                }
+                break;
+            case REVERSED:
+                for (int i = 0; i < arr.length / 2; i++) {
+                    int newPos = arr.length - i - 1;
+                    Object t = arr[newPos];
+                    arr[newPos] = arr[i];
+                    arr[i] = t;
+                }
+                break;
+            case NEARLY_SORTED:
+                for (int i = 0; i < arr.length / NEARLY_SORTED_SWAPS; i++) {
+                    int a = rnd.nextInt(arr.length);
+                    int b = rnd.nextInt(arr.length);
+                    Object t = arr[a];
+                    arr[a] = arr[b];
+                    arr[b] = t;
+                }
+                break;
+            case SORTED:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data order: "
+                        + this);
+        }
+    }
+
+    /**
+     * Rearrange sorted data into this layout
+     *
+     * @param arr the sorted data to reorder
+     * @param rnd the source of randomness for random layouts
+     */
+    public void arrange(int[] arr, Random rnd) {
+        switch (this) {
+            case RANDOM:
+                for (int i = 0; i < arr.length; i++) {
+                    int newPos = rnd.nextInt(arr.length);
+                    int t = arr[i];
+                    arr[i] = arr[newPos];
+                    arr[newPos] = t;
+                }
+                break;
+            case REVERSED:
+                for (int i = 0; i < arr.length / 2; i++) {
+                    int newPos = arr.length - i - 1;
+                    int t = arr[newPos];
+                    arr[newPos] = arr[i];
+                    arr[i] = t;
+                }
+                break;
+            case NEARLY_SORTED:
+                for (int i = 0; i < arr.length / NEARLY_SORTED_SWAPS; i++) {
+                    int a = rnd.nextInt(arr.length);
+                    int b = rnd.nextInt(arr.length);
+                    int t = arr[a];
+                    arr[a] = arr[b];
+                    arr[b] = t;
+                }
+                break;
+            case SORTED:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data order: "
+                        + this);
+        }
+    }
+}
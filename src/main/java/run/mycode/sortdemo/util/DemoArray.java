@@ -1,14 +1,25 @@
 package run.mycode.sortdemo.util;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.SimpleLongProperty;
 import static run.mycode.sortdemo.util.DemoArray.accessCallback;
 
 /**
  * An array with accessors to allow tracking of data accesses and changes
  *
+ * Several threads may operate on the array at once, as long as each works on
+ * its own locations, as the workers of a parallel sort do. The counts, the
+ * queue of operations reported to the callbacks and any trace being recorded
+ * are all safe to update concurrently, so every operation is counted. While
+ * an operation is being reported to the callbacks, getEventWorker() tells
+ * which worker performed it.
+ *
  * @author bdahl
  *
  * @param <T> The type of data to store
@@ -17,15 +28,44 @@ public class DemoArray<T extends Comparable<T>> {
 
     private T[] data;
 
-    private IntegerProperty accesses;
-    private IntegerProperty gets;
-    private IntegerProperty puts;
-    private IntegerProperty compares;
-    private IntegerProperty swaps;
+    private OperationCounts counts;
+
+    // A view of the counts for the UI, sampled once per animation pulse
+    private final LongProperty accesses;
+    private final LongProperty gets;
+    private final LongProperty puts;
+    private final LongProperty compares;
+    private final LongProperty swaps;
+    private final LongProperty bucketWrites;
+    private final LongProperty bytesRead;
+    private final LongProperty bytesWritten;
+    private final LongProperty passes;
+    private volatile boolean viewed;
+    private boolean instrumented;
 
     private changeCallback<T> onChange;
     private accessCallback<T> onAccess;
     private comparedCallback<T> onCompare;
+    private Runnable onResync;
+
+    private ToIntFunction<? super T> keyExtractor;
+    private volatile TraceWriter trace;
+    private int traceId;
+
+    // Operations queued by the sorting thread, and the batch being processed
+    // by the FX thread. If the queue fills up the operations are dropped, and
+    // the callbacks are told to resync with the whole array instead.
+    private static final int MAX_PENDING = 1 << 20;
+    private final OperationBuffer pending;
+    private final OperationBuffer draining;
+    private final AtomicBoolean drainScheduled;
+    private final AtomicBoolean overflowed;
+    private AnimationTimer pulse;
+    private int eventWorker;
+
+    // The number of the parallel sort worker running on each thread
+    private static final ThreadLocal<Integer> WORKER
+            = ThreadLocal.withInitial(() -> 0);
 
     /**
      * Create a new array of a given size
@@ -50,14 +90,28 @@ public class DemoArray<T extends Comparable<T>> {
     }
 
     /**
-     * initialize private properties of the array
+     * initialize private properties of the array. Subclasses using this
+     * constructor must provide their own storage by overriding length() and
+     * the element storage methods.
      */
-    private DemoArray() {
-        accesses = new SimpleIntegerProperty(0);
-        gets = new SimpleIntegerProperty(0);
-        puts = new SimpleIntegerProperty(0);
-        compares = new SimpleIntegerProperty(0);
-        swaps = new SimpleIntegerProperty(0);
+    protected DemoArray() {
+        counts = new OperationCounts();
+        instrumented = true;
+
+        accesses = new SimpleLongProperty(0);
+        gets = new SimpleLongProperty(0);
+        puts = new SimpleLongProperty(0);
+        compares = new SimpleLongProperty(0);
+        swaps = new SimpleLongProperty(0);
+        bucketWrites = new SimpleLongProperty(0);
+        bytesRead = new SimpleLongProperty(0);
+        bytesWritten = new SimpleLongProperty(0);
+        passes = new SimpleLongProperty(0);
+
+        pending = new OperationBuffer(MAX_PENDING);
+        draining = new OperationBuffer(MAX_PENDING);
+        drainScheduled = new AtomicBoolean(false);
+        overflowed = new AtomicBoolean(false);
     }
 
     /**
@@ -69,28 +123,422 @@ public class DemoArray<T extends Comparable<T>> {
         return data.length;
     }
 
+    /**
+     * Create an empty array with the same kind of storage as this one, for
+     * use as scratch space by a sorting algorithm
+     *
+     * @param size the number of elements to reserve space for
+     * @return a new, empty array
+     */
+    public DemoArray<T> createScratch(int size) {
+        DemoArray<T> scratch = new DemoArray<>(size);
+        scratch.setKeyExtractor(keyExtractor);
+        scratch.setInstrumented(instrumented);
+        return scratch;
+    }
+
+    /**
+     * Turn the instrumentation of the array on or off. An uninstrumented
+     * array behaves like a plain array: operations are not counted, traced or
+     * reported to the callbacks. Used to measure the cost of the
+     * instrumentation itself. Should be called before sorting begins.
+     *
+     * @param instrumented false to stop counting operations
+     */
+    public void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
+
+    /**
+     * Check if operations on the array are being counted
+     *
+     * @return true if the array is instrumented
+     */
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
     /**
      * Reset the access/change counts
      */
     public void resetCounts() {
-        resetProperties();
+        counts.reset();
+        updateView();
+    }
+
+    /**
+     * Count the operations on this array in a shared set of counts, for
+     * example so that parallel sorters or several arrays can be totaled
+     * together. Should be called before sorting begins.
+     *
+     * @param counts the counts to add this array's operations to
+     */
+    public void shareCounts(OperationCounts counts) {
+        this.counts = counts;
+        updateView();
+    }
+
+    /**
+     * Get the counts of operations performed on this array
+     *
+     * @return the operation counts
+     */
+    public OperationCounts getCounts() {
+        return counts;
+    }
+
+    /**
+     * Set the function used to find the integer key of an element, which is
+     * needed to record a trace of the array or to read keys with getKey
+     *
+     * @param keyExtractor a function returning the key of an element
+     */
+    public void setKeyExtractor(ToIntFunction<? super T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Begin writing the operations on this array to a trace
+     *
+     * @param writer the trace to write to
+     * @param id the id identifying this array in the trace
+     */
+    void recordTo(TraceWriter writer, int id) {
+        traceId = id;
+        trace = writer;
+    }
+
+    /**
+     * Stop writing the operations on this array to a trace
+     *
+     * @param writer the trace to stop writing to
+     */
+    void stopRecording(TraceWriter writer) {
+        if (trace == writer) {
+            trace = null;
+        }
+    }
+
+    /**
+     * Check if the operations on this array are being written to a trace
+     *
+     * @return true if a trace is being recorded
+     */
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    /**
+     * Copy the keys of the elements in the array without counting any
+     * accesses
+     *
+     * @return the key of each element, or Integer.MIN_VALUE for empty
+     *         locations
+     */
+    public int[] toKeyArray() {
+        int[] keys = new int[length()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyAt(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Get the key of an element in the array without counting the access
+     *
+     * @param index the location of the element
+     * @return the key of the element
+     */
+    int keyAt(int index) {
+        return keyOf(element(index));
+    }
+
+    /**
+     * Get the key of an element
+     *
+     * @param item the element
+     * @return the key of the element, or Integer.MIN_VALUE for null
+     * @throws IllegalStateException if no key extractor has been set
+     */
+    public int keyOf(T item) {
+        if (item == null) {
+            return Integer.MIN_VALUE;
+        }
+        if (keyExtractor == null) {
+            throw new IllegalStateException("No key extractor has been set");
+        }
+        return keyExtractor.applyAsInt(item);
+    }
+
+    /**
+     * Count an operation and queue it to be reported to the callbacks and
+     * written to the trace
+     */
+    void record(int op, int index1, int index2, T val1, T val2) {
+        if (!instrumented) {
+            return;
+        }
+
+        int key = 0;
+        if (trace != null) {
+            switch (op) {
+                case OperationBuffer.GET:
+                case OperationBuffer.REMOVE:
+                    key = keyAt(index1);
+                    break;
+                case OperationBuffer.SET:
+                case OperationBuffer.COMPARE_ITEM:
+                    key = keyOf(val2);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        record(op, index1, index2, val1, val2, key);
+    }
+
+    /**
+     * Count an operation and queue it to be reported to the callbacks and
+     * written to the trace. When called from the FX thread the queue is
+     * processed immediately, otherwise it is processed in bulk on the next
+     * animation pulse. If nothing is observing the array the operation is only
+     * counted.
+     *
+     * @param key the key of the value read or written by the operation, used
+     *            only when recording a trace
+     */
+    void record(int op, int index1, int index2, T val1, T val2, int key) {
+        if (!instrumented) {
+            return;
+        }
+
+        counts.count(op);
+
+        final int bytes = bytesPerElement();
+        if (bytes > 0) {
+            counts.countBytes(op, bytes);
+        }
+
+        final TraceWriter t = trace;
+        if (t != null) {
+            t.append(op, traceId, index1, index2, key);
+        }
+
+        if (hasListeners()) {
+            if (!pending.add(op, index1, index2, WORKER.get(), val1, val2)) {
+                overflowed.set(true);
+            }
+        } else if (!viewed) {
+            return;
+        }
+
+        if (Platform.isFxApplicationThread()) {
+            drainEvents();
+            sampleCounts();
+        } else {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Identify the current thread as a worker of a parallel sort, so that
+     * the operations it performs can be told apart from those of the other
+     * workers
+     *
+     * @param worker the worker number, starting from 1
+     */
+    public static void setWorkerNumber(int worker) {
+        WORKER.set(worker);
     }
 
-    private void resetProperties() {
-        fxRunSafe(() -> {
-            accesses.set(0);
-            gets.set(0);
-            puts.set(0);
-            compares.set(0);
-            swaps.set(0);
-        });
+    /**
+     * Get the worker that performed the operation currently being reported
+     * to the callbacks. Only meaningful inside a callback.
+     *
+     * @return the worker number, starting from 1 for the workers of a
+     *         parallel sort, or 0 if the operation was not performed by a
+     *         worker
+     */
+    public int getEventWorker() {
+        return eventWorker;
     }
 
-    private void fxRunSafe(Runnable r) {
+    /**
+     * Bring the count properties up to date, now if on the FX thread,
+     * otherwise on the next animation pulse.
+     */
+    private void updateView() {
+        if (!viewed) {
+            return;
+        }
+
         if (Platform.isFxApplicationThread()) {
-            r.run();
+            sampleCounts();
         } else {
-            Platform.runLater(r);
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Copy the current counts into the count properties. Must be called on
+     * the FX thread.
+     *
+     * @return true if any of the counts changed since the last sample
+     */
+    private boolean sampleCounts() {
+        boolean changed = countsChanged();
+
+        accesses.set(counts.getAccesses());
+        gets.set(counts.getGets());
+        puts.set(counts.getPuts());
+        compares.set(counts.getCompares());
+        swaps.set(counts.getSwaps());
+        bucketWrites.set(counts.getBucketWrites());
+        bytesRead.set(counts.getBytesRead());
+        bytesWritten.set(counts.getBytesWritten());
+        passes.set(counts.getPasses());
+
+        return changed;
+    }
+
+    /**
+     * Check if the counts have changed since they were last copied into the
+     * count properties
+     */
+    private boolean countsChanged() {
+        return counts.getAccesses() != accesses.get()
+                || counts.getBucketWrites() != bucketWrites.get()
+                || counts.getBytesRead() != bytesRead.get()
+                || counts.getBytesWritten() != bytesWritten.get()
+                || counts.getPasses() != passes.get();
+    }
+
+    /**
+     * Make sure that a pulse is scheduled to drain the queued operations
+     */
+    private void scheduleDrain() {
+        if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::startPulse);
+        }
+    }
+
+    /**
+     * Begin draining queued operations once per animation pulse. Must be
+     * called on the FX thread.
+     */
+    private void startPulse() {
+        if (pulse == null) {
+            pulse = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    int drained = drainEvents();
+
+                    if (!sampleCounts() && drained == 0) {
+                        // Nothing happened since the last pulse, go idle until
+                        // the sorting thread does something new
+                        stop();
+                        drainScheduled.set(false);
+
+                        if (!pending.isEmpty() || countsChanged()) {
+                            scheduleDrain();
+                        }
+                    }
+                }
+            };
+        }
+        pulse.start();
+    }
+
+    /**
+     * Report every queued operation to the callbacks. Must be called on the FX
+     * thread.
+     *
+     * @return the number of operations that were applied
+     */
+    @SuppressWarnings("unchecked")
+    private int drainEvents() {
+        pending.transferTo(draining);
+
+        int n = draining.size();
+        if (overflowed.getAndSet(false)) {
+            // Some operations were dropped, so the queued ones can't be
+            // trusted to bring the observers up to date
+            draining.clear();
+            if (onResync != null) {
+                onResync.run();
+            }
+            return Math.max(n, 1);
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        for (int r = 0; r < n; r++) {
+            final int i1 = draining.index1(r);
+            final int i2 = draining.index2(r);
+            final T d1 = (T) draining.value1(r);
+            final T d2 = (T) draining.value2(r);
+            eventWorker = draining.worker(r);
+
+            switch (draining.op(r)) {
+                case OperationBuffer.GET:
+                    fireAccess(i1, d1);
+                    break;
+                case OperationBuffer.REMOVE:
+                    fireAccess(i1, d1);
+                    fireChange(i1, d1, null);
+                    break;
+                case OperationBuffer.SET:
+                    fireAccess(i1, d1);
+                    fireChange(i1, null, d2);
+                    break;
+                case OperationBuffer.MOVE:
+                    fireAccess(i1, d1);
+                    fireAccess(i2, d1);
+                    fireChange(i1, d1, null);
+                    fireChange(i2, d2, d1);
+                    break;
+                case OperationBuffer.COMPARE:
+                    fireAccess(i1, d1);
+                    fireAccess(i2, d2);
+                    if (onCompare != null) {
+                        onCompare.call(i1, i2, d1, d2);
+                    }
+                    break;
+                case OperationBuffer.COMPARE_ITEM:
+                    fireAccess(i1, d1);
+                    if (onCompare != null) {
+                        onCompare.call(i1, -1, d1, d2);
+                    }
+                    break;
+                case OperationBuffer.SWAP:
+                    fireAccess(i1, d1);
+                    fireAccess(i2, d2);
+                    fireChange(i1, null, d2);
+                    fireChange(i2, null, d1);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation: "
+                            + draining.op(r));
+            }
+        }
+
+        draining.clear();
+        eventWorker = 0;
+
+        return n;
+    }
+
+    private void fireAccess(int index, T val) {
+        if (onAccess != null) {
+            onAccess.call(index, val);
+        }
+    }
+
+    private void fireChange(int index, T oldVal, T newVal) {
+        if (onChange != null) {
+            onChange.call(index, oldVal, newVal);
         }
     }
 
@@ -101,17 +549,82 @@ public class DemoArray<T extends Comparable<T>> {
      * @return
      */
     public T get(int index) {
-        final T d = data[index];
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 1);
-            gets.set(gets.get() + 1);
+        final T d = element(index);
+        record(OperationBuffer.GET, index, -1, d, null);
 
-            if (onAccess != null) {
-                onAccess.call(index, d);
-            }
-        });
+        return d;
+    }
 
-        return data[index];
+    /**
+     * Get the integer key of an element in the array, as used by sorts that
+     * distribute elements by their keys rather than comparing them. Counted
+     * as a read of the element.
+     *
+     * @param index the location of the element
+     * @return the key of the element
+     * @throws IllegalStateException if no key extractor has been set
+     */
+    public int getKey(int index) {
+        final T d = element(index);
+        record(OperationBuffer.GET, index, -1, d, null);
+
+        return keyOf(d);
+    }
+
+    /**
+     * Count a write to a bucket table kept by the sort, such as the digit
+     * counts of a radix sort. Bucket tables are not part of the array, so the
+     * write is counted separately from the array accesses.
+     */
+    public void countBucketWrite() {
+        if (!instrumented) {
+            return;
+        }
+
+        counts.countBucketWrite();
+        updateView();
+    }
+
+    /**
+     * Count bytes a sort has read from a file of its own, such as a run
+     * spilled to disk by an external sort
+     *
+     * @param bytes the number of bytes read
+     */
+    public void countBytesRead(long bytes) {
+        if (!instrumented) {
+            return;
+        }
+
+        counts.countBytesRead(bytes);
+        updateView();
+    }
+
+    /**
+     * Count bytes a sort has written to a file of its own, such as a run
+     * spilled to disk by an external sort
+     *
+     * @param bytes the number of bytes written
+     */
+    public void countBytesWritten(long bytes) {
+        if (!instrumented) {
+            return;
+        }
+
+        counts.countBytesWritten(bytes);
+        updateView();
+    }
+
+    /**
+     * Count one pass of a sort over all of its data
+     */
+    public void countPass() {
+        if (!instrumented) {
+            return;
+        }
+
+        counts.countPass();
+        updateView();
     }
 
     /**
@@ -122,22 +635,11 @@ public class DemoArray<T extends Comparable<T>> {
      * @return the element removed from the array
      */
     public T remove(int index) {
-        final T d = data[index];
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 1);
-            gets.set(gets.get() + 1);
-
-            if (onAccess != null) {
-                onAccess.call(index, d);
-            }
-            if (onChange != null) {
-                onChange.call(index, d, null);
-            }
-        });
+        final T d = element(index);
+        record(OperationBuffer.REMOVE, index, -1, d, null);
 
-        T item = data[index];
-        data[index] = null;
-        return item;
+        clearElement(index);
+        return d;
     }
 
     /**
@@ -147,20 +649,9 @@ public class DemoArray<T extends Comparable<T>> {
      * @param item
      */
     public void set(int index, T item) {
-        final T d = data[index];
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 1);
-            puts.set(puts.get() + 1);
+        record(OperationBuffer.SET, index, -1, observed(index), item);
 
-            if (onAccess != null) {
-                onAccess.call(index, d);
-            }
-            if (onChange != null) {
-                onChange.call(index, null, item);
-            }
-        });
-
-        data[index] = item;
+        storeElement(index, item);
     }
 
     /**
@@ -170,26 +661,10 @@ public class DemoArray<T extends Comparable<T>> {
      * @param newIndex the new index to move to
      */
     public void move(int index, int newIndex) {
-        final T d1 = data[index];
-        final T d2 = data[newIndex];
-        
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 1);
-            gets.set(gets.get() + 1);
-            puts.set(puts.get() + 1);
-
-            if (onAccess != null) {
-                onAccess.call(index, d1);
-                onAccess.call(newIndex, d1);
-            }
-            if (onChange != null) {
-                onChange.call(index, d1, null);
-                onChange.call(newIndex, d2, d1);
-            }
-        });
+        record(OperationBuffer.MOVE, index, newIndex,
+                observed(index), observed(newIndex));
 
-        data[newIndex] = data[index];
-        data[index] = null;
+        moveElement(index, newIndex);
     }
 
     /**
@@ -200,23 +675,10 @@ public class DemoArray<T extends Comparable<T>> {
      * @return
      */
     public int compare(int index1, int index2) {
-        final T d1 = data[index1];
-        final T d2 = data[index2];
-        
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 2);
-            gets.set(gets.get() + 2);
-            compares.set(compares.get() + 1);
-            if (onAccess != null) {
-                onAccess.call(index1, d1);
-                onAccess.call(index2, d2);
-            }
-            if (onCompare != null) {
-                onCompare.call(index1, index2, d1, d2);
-            }
-        });
+        record(OperationBuffer.COMPARE, index1, index2,
+                observed(index1), observed(index2));
 
-        return data[index1].compareTo(data[index2]);
+        return compareElements(index1, index2);
     }
 
     /**
@@ -229,20 +691,9 @@ public class DemoArray<T extends Comparable<T>> {
      * element
      */
     public int compare(int index, T item) {
-        final T d = data[index];
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 1);
-            gets.set(gets.get() + 1);
-            compares.set(compares.get() + 1);
-            if (onAccess != null) {
-                onAccess.call(index, d);
-            }
-            if (onCompare != null) {
-                onCompare.call(index, -1, d, item);
-            }
-        });
+        record(OperationBuffer.COMPARE_ITEM, index, -1, observed(index), item);
 
-        return data[index].compareTo(item);
+        return compareElement(index, item);
     }
 
     /**
@@ -252,30 +703,122 @@ public class DemoArray<T extends Comparable<T>> {
      * @param index2
      */
     public void swap(int index1, int index2) {
-        final T d1 = data[index1];
-        final T d2 = data[index2];
-        
-        fxRunSafe(() -> {
-            accesses.set(accesses.get() + 4);
-            gets.set(gets.get() + 2);
-            puts.set(puts.get() + 2);
-            swaps.set(swaps.get() + 1);
-
-            if (onAccess != null) {
-                onAccess.call(index1, d1);
-                onAccess.call(index2, d2);
-            }
-            if (onChange != null) {
-                onChange.call(index1, null, d2);
-                onChange.call(index2, null, d1);
-            }
-        });
+        record(OperationBuffer.SWAP, index1, index2,
+                observed(index1), observed(index2));
+
+        swapElements(index1, index2);
+    }
 
+    /**
+     * Read an element from storage without counting the access
+     *
+     * @param index the location to read
+     * @return the element at that location
+     */
+    protected T element(int index) {
+        return data[index];
+    }
+
+    /**
+     * Read an element from storage for reporting to the callbacks, without
+     * counting the access. Storage that has to create an object to report the
+     * element may return null when there are no callbacks to report to.
+     *
+     * @param index the location to read
+     * @return the element at that location, or null if nobody is listening
+     */
+    protected T observed(int index) {
+        return element(index);
+    }
+
+    /**
+     * Write an element to storage without counting the access
+     *
+     * @param index the location to write
+     * @param item the element to store
+     */
+    protected void storeElement(int index, T item) {
+        data[index] = item;
+    }
+
+    /**
+     * Empty a location in storage without counting the access
+     *
+     * @param index the location to empty
+     */
+    protected void clearElement(int index) {
+        data[index] = null;
+    }
+
+    /**
+     * Move an element to a new location in storage, emptying its old location,
+     * without counting the access
+     *
+     * @param index the location of the element to move
+     * @param newIndex the location to move it to
+     */
+    protected void moveElement(int index, int newIndex) {
+        data[newIndex] = data[index];
+        data[index] = null;
+    }
+
+    /**
+     * Exchange two elements in storage without counting the access
+     *
+     * @param index1
+     * @param index2
+     */
+    protected void swapElements(int index1, int index2) {
         T temp = data[index1];
         data[index1] = data[index2];
         data[index2] = temp;
     }
 
+    /**
+     * Compare two elements in storage without counting the access
+     *
+     * @param index1
+     * @param index2
+     * @return the result of comparing the element at index1 to the element at
+     * index2
+     */
+    protected int compareElements(int index1, int index2) {
+        return data[index1].compareTo(data[index2]);
+    }
+
+    /**
+     * Compare an element in storage with an item outside the array without
+     * counting the access
+     *
+     * @param index
+     * @param item
+     * @return the result of comparing the element at index to the item
+     */
+    protected int compareElement(int index, T item) {
+        return data[index].compareTo(item);
+    }
+
+    /**
+     * Get the number of bytes each element takes in storage kept outside the
+     * heap, which are counted as read or written each time an element is
+     * accessed
+     *
+     * @return the size of an element in storage, or 0 for arrays kept on the
+     *         heap
+     */
+    protected int bytesPerElement() {
+        return 0;
+    }
+
+    /**
+     * Check if any callbacks are attached to the array
+     *
+     * @return true if operations on the array are being observed
+     */
+    protected boolean hasListeners() {
+        return onAccess != null || onChange != null || onCompare != null;
+    }
+
     /**
      * Set the callback to call when an element in the array is changed
      *
@@ -304,11 +847,34 @@ public class DemoArray<T extends Comparable<T>> {
     }
 
     /**
-     * Access the access count property of the array
+     * Set the callback to call when operations happened too quickly to be
+     * reported individually. The callback should read the whole array again,
+     * for example with toKeyArray().
+     *
+     * @param callback
+     */
+    public void setOnResync(Runnable callback) {
+        onResync = callback;
+    }
+
+    /**
+     * Start keeping the count properties up to date
+     */
+    private void watchCounts() {
+        if (!viewed) {
+            viewed = true;
+            updateView();
+        }
+    }
+
+    /**
+     * Access the access count property of the array. The property is a view
+     * of the counts that is updated once per animation pulse.
      *
      * @return
      */
-    public IntegerProperty getAccessesProperty() {
+    public ReadOnlyLongProperty getAccessesProperty() {
+        watchCounts();
         return accesses;
     }
 
@@ -317,7 +883,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public IntegerProperty getGetsProperty() {
+    public ReadOnlyLongProperty getGetsProperty() {
+        watchCounts();
         return gets;
     }
 
@@ -326,7 +893,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public IntegerProperty getPutsProperty() {
+    public ReadOnlyLongProperty getPutsProperty() {
+        watchCounts();
         return puts;
     }
 
@@ -335,7 +903,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public IntegerProperty getComparesProperty() {
+    public ReadOnlyLongProperty getComparesProperty() {
+        watchCounts();
         return compares;
     }
 
@@ -344,17 +913,58 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public IntegerProperty getSwapsProperty() {
+    public ReadOnlyLongProperty getSwapsProperty() {
+        watchCounts();
         return swaps;
     }
 
+    /**
+     * Access the bucket writes count property of the array
+     *
+     * @return
+     */
+    public ReadOnlyLongProperty getBucketWritesProperty() {
+        watchCounts();
+        return bucketWrites;
+    }
+
+    /**
+     * Access the bytes read count property of the array
+     *
+     * @return
+     */
+    public ReadOnlyLongProperty getBytesReadProperty() {
+        watchCounts();
+        return bytesRead;
+    }
+
+    /**
+     * Access the bytes written count property of the array
+     *
+     * @return
+     */
+    public ReadOnlyLongProperty getBytesWrittenProperty() {
+        watchCounts();
+        return bytesWritten;
+    }
+
+    /**
+     * Access the passes count property of the array
+     *
+     * @return
+     */
+    public ReadOnlyLongProperty getPassesProperty() {
+        watchCounts();
+        return passes;
+    }
+
     /**
      * Get the number of times array elements have been accessed
      *
      * @return
      */
-    public int getAccesses() {
-        return accesses.get();
+    public long getAccesses() {
+        return counts.getAccesses();
     }
 
     /**
@@ -362,8 +972,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public int getGets() {
-        return gets.get();
+    public long getGets() {
+        return counts.getGets();
     }
 
     /**
@@ -371,8 +981,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public int getPuts() {
-        return puts.get();
+    public long getPuts() {
+        return counts.getPuts();
     }
 
     /**
@@ -380,8 +990,8 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public int getCompares() {
-        return compares.get();
+    public long getCompares() {
+        return counts.getCompares();
     }
 
     /**
@@ -389,8 +999,46 @@ public class DemoArray<T extends Comparable<T>> {
      *
      * @return
      */
-    public int getSwaps() {
-        return swaps.get();
+    public long getSwaps() {
+        return counts.getSwaps();
+    }
+
+    /**
+     * Get the number of writes made to bucket tables while sorting the array
+     *
+     * @return
+     */
+    public long getBucketWrites() {
+        return counts.getBucketWrites();
+    }
+
+    /**
+     * Get the number of bytes read from storage outside the heap, by element
+     * accesses or by the sort
+     *
+     * @return
+     */
+    public long getBytesRead() {
+        return counts.getBytesRead();
+    }
+
+    /**
+     * Get the number of bytes written to storage outside the heap, by element
+     * accesses or by the sort
+     *
+     * @return
+     */
+    public long getBytesWritten() {
+        return counts.getBytesWritten();
+    }
+
+    /**
+     * Get the number of passes a sort has made over all of its data
+     *
+     * @return
+     */
+    public long getPasses() {
+        return counts.getPasses();
     }
 
     /**
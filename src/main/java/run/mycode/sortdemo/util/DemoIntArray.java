@@ -0,0 +1,196 @@
+package run.mycode.sortdemo.util;
+
+import java.util.Arrays;
+
+/**
+ * An instrumented array of primitive ints. Operations are counted exactly
+ * like those of a DemoArray, but the data is kept in an int[] so that
+ * index-based operations (compare, swap, move) never create objects, and
+ * elements are only boxed when they are read out as Integers or reported to
+ * callbacks.
+ *
+ * Since an int[] can not hold null, removing an element leaves its old value
+ * in place; the location should be treated as empty until it is written.
+ * Setting an element to null is rejected.
+ *
+ * @author bdahl
+ */
+public class DemoIntArray extends DemoArray<Integer> {
+
+    private final int[] data;
+
+    /**
+     * Create a new array of a given size, filled with zeros
+     *
+     * @param size the number of elements to reserve space for
+     */
+    public DemoIntArray(int size) {
+        super();
+        data = new int[size];
+    }
+
+    /**
+     * Encapsulate an existing array. Note: makes a copy of the provided array
+     *
+     * @param arr An array to copy into the DemoIntArray
+     */
+    public DemoIntArray(int[] arr) {
+        super();
+        data = Arrays.copyOf(arr, arr.length);
+    }
+
+    @Override
+    public int length() {
+        return data.length;
+    }
+
+    @Override
+    public DemoArray<Integer> createScratch(int size) {
+        DemoIntArray scratch = new DemoIntArray(size);
+        scratch.setInstrumented(isInstrumented());
+        return scratch;
+    }
+
+    /**
+     * Get an element from the array without boxing it
+     *
+     * @param index
+     * @return the value at index
+     */
+    public int getInt(int index) {
+        final int d = data[index];
+        record(OperationBuffer.GET, index, -1, observed(index), null);
+
+        return d;
+    }
+
+    /**
+     * Remove an element from the array without boxing it. Note: the get
+     * operation will be counted, but not the set operation.
+     *
+     * @param index the location to remove an element from
+     * @return the value removed from the array
+     */
+    public int removeInt(int index) {
+        final int d = data[index];
+        record(OperationBuffer.REMOVE, index, -1, observed(index), null);
+
+        return d;
+    }
+
+    /**
+     * Update an element in the array without boxing it
+     *
+     * @param index
+     * @param value
+     */
+    public void setInt(int index, int value) {
+        record(OperationBuffer.SET, index, -1, observed(index),
+                hasListeners() ? value : null, value);
+
+        data[index] = value;
+    }
+
+    /**
+     * Update an element in the array
+     *
+     * @param index the location to update
+     * @param item the new value
+     * @throws IllegalArgumentException if the item is null
+     */
+    @Override
+    public void set(int index, Integer item) {
+        if (item == null) {
+            throw new IllegalArgumentException(
+                    "A DemoIntArray can't hold null, use remove() instead");
+        }
+        super.set(index, item);
+    }
+
+    /**
+     * Compare an element in the array with a value outside the array
+     *
+     * @param index
+     * @param value
+     * @return Negative if the array element comes before the value, 0 if they
+     * are the same value, Positive if the value should come before the array
+     * element
+     */
+    public int compareValue(int index, int value) {
+        record(OperationBuffer.COMPARE_ITEM, index, -1, observed(index),
+                hasListeners() ? value : null, value);
+
+        return Integer.compare(data[index], value);
+    }
+
+    /**
+     * Copy the contents of the array without counting any accesses
+     *
+     * @return a copy of the values in the array
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(data, data.length);
+    }
+
+    @Override
+    public int[] toKeyArray() {
+        return toIntArray();
+    }
+
+    @Override
+    int keyAt(int index) {
+        return data[index];
+    }
+
+    @Override
+    public int getKey(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public int keyOf(Integer item) {
+        return item == null ? Integer.MIN_VALUE : item;
+    }
+
+    @Override
+    protected Integer element(int index) {
+        return data[index];
+    }
+
+    @Override
+    protected Integer observed(int index) {
+        return hasListeners() ? data[index] : null;
+    }
+
+    @Override
+    protected void storeElement(int index, Integer item) {
+        data[index] = item;
+    }
+
+    @Override
+    protected void clearElement(int index) {
+        // An int can't be emptied, the old value stays until overwritten
+    }
+
+    @Override
+    protected void moveElement(int index, int newIndex) {
+        data[newIndex] = data[index];
+    }
+
+    @Override
+    protected void swapElements(int index1, int index2) {
+        int temp = data[index1];
+        data[index1] = data[index2];
+        data[index2] = temp;
+    }
+
+    @Override
+    protected int compareElements(int index1, int index2) {
+        return Integer.compare(data[index1], data[index2]);
+    }
+
+    @Override
+    protected int compareElement(int index, Integer item) {
+        return Integer.compare(data[index], item);
+    }
+}
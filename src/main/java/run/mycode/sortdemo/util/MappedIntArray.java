@@ -0,0 +1,294 @@
+package run.mycode.sortdemo.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An instrumented array of ints kept in a file rather than on the heap. The
+ * file is memory-mapped in fixed-size segments, so the array can be larger
+ * than the heap and larger than a single mapping allows, and the operating
+ * system pages the data in and out as it is used.
+ *
+ * Operations are counted exactly like those of a DemoIntArray, and every
+ * element read from or written to the file is also counted in the bytes read
+ * and bytes written counts, 4 bytes at a time.
+ *
+ * Like a DemoIntArray, removing an element leaves its old value in place, and
+ * setting an element to null is rejected.
+ *
+ * Closing the array releases its mappings, along with those of any scratch
+ * arrays made from it, and deletes any temporary files. The arrays can't be
+ * used once closed. Temporary files are only deleted by close(), so an array
+ * that is never closed leaves its file behind.
+ *
+ * @author bdahl
+ */
+public class MappedIntArray extends DemoArray<Integer>
+        implements AutoCloseable {
+
+    // Each segment maps 2^SEGMENT_BITS ints
+    private static final int SEGMENT_BITS = 20;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    private MappedByteBuffer[] mappings;
+    private IntBuffer[] segments;
+    private final int length;
+
+    private final Path file;
+    private boolean temporary;      // true if the file is deleted on close
+    private final List<MappedIntArray> scratches;   // closed along with this
+
+    /**
+     * Map an array of ints in a file. The file is created or extended as
+     * needed, and any ints already in it become the contents of the array.
+     *
+     * @param file the file to keep the array in
+     * @param length the number of ints in the array
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public MappedIntArray(Path file, int length) throws IOException {
+        this(file, length, false);
+    }
+
+    /**
+     * Create a new array of a given size, filled with zeros, in a temporary
+     * file that is deleted when the array is closed
+     *
+     * @param size the number of elements to reserve space for
+     * @throws IOException if the file can't be created
+     */
+    public MappedIntArray(int size) throws IOException {
+        this(Files.createTempFile("sortdemo-", ".ints"), size, true);
+    }
+
+    /**
+     * Copy an existing array into a temporary file that is deleted when the
+     * array is closed
+     *
+     * @param arr An array to copy into the MappedIntArray
+     * @throws IOException if the file can't be created
+     */
+    public MappedIntArray(int[] arr) throws IOException {
+        this(arr.length);
+
+        for (int i = 0; i < arr.length; i++) {
+            store(i, arr[i]);
+        }
+    }
+
+    /**
+     * Map an array of ints in a file. If the file can't be mapped a
+     * temporary file is deleted before the exception is thrown.
+     *
+     * @param file the file to keep the array in
+     * @param length the number of ints in the array
+     * @param temporary true to delete the file when the array is closed
+     * @throws IOException if the file can't be opened or mapped
+     */
+    private MappedIntArray(Path file, int length, boolean temporary)
+            throws IOException {
+        super();
+        this.length = length;
+        this.file = file;
+        this.temporary = temporary;
+        this.scratches = new ArrayList<>();
+
+        final int count = (int) (((long) length + SEGMENT_MASK)
+                >>> SEGMENT_BITS);
+        mappings = new MappedByteBuffer[count];
+        segments = new IntBuffer[count];
+
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            for (int s = 0; s < count; s++) {
+                final long start = (long) s << SEGMENT_BITS;
+                final long ints = Math.min(1L << SEGMENT_BITS, length - start);
+
+                mappings[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        start * Integer.BYTES, ints * Integer.BYTES);
+                mappings[s].order(ByteOrder.nativeOrder());
+                segments[s] = mappings[s].asIntBuffer();
+            }
+        } catch (IOException | RuntimeException | Error ex) {
+            // Out of address space or disk, let go of what was mapped
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Release the array's mappings and those of its scratch arrays, and
+     * delete their temporary files. The mappings are unmapped once they have
+     * been garbage collected.
+     */
+    @Override
+    public void close() {
+        for (MappedIntArray scratch : scratches) {
+            scratch.close();
+        }
+        scratches.clear();
+
+        mappings = new MappedByteBuffer[0];
+        segments = new IntBuffer[0];
+
+        if (temporary) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                // Still mapped on some systems, delete it when the program
+                // exits instead
+                file.toFile().deleteOnExit();
+            }
+            temporary = false;
+        }
+    }
+
+    /**
+     * Write any changes to the array out to its file
+     */
+    public void flush() {
+        for (MappedByteBuffer m : mappings) {
+            m.force();
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Create an empty scratch array, also kept in a temporary file
+     *
+     * @throws UncheckedIOException if the file can't be created
+     */
+    @Override
+    public DemoArray<Integer> createScratch(int size) {
+        try {
+            MappedIntArray scratch = new MappedIntArray(size);
+            scratch.setInstrumented(isInstrumented());
+            scratches.add(scratch);
+            return scratch;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    protected int bytesPerElement() {
+        return Integer.BYTES;
+    }
+
+    private int load(int index) {
+        return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+    }
+
+    private void store(int index, int value) {
+        segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Copy the contents of the array without counting any accesses
+     *
+     * @return a copy of the values in the array
+     */
+    public int[] toIntArray() {
+        final int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = load(i);
+        }
+        return values;
+    }
+
+    @Override
+    public int[] toKeyArray() {
+        return toIntArray();
+    }
+
+    /**
+     * Update an element in the array
+     *
+     * @param index the location to update
+     * @param item the new value
+     * @throws IllegalArgumentException if the item is null
+     */
+    @Override
+    public void set(int index, Integer item) {
+        if (item == null) {
+            throw new IllegalArgumentException(
+                    "A MappedIntArray can't hold null, use remove() instead");
+        }
+        super.set(index, item);
+    }
+
+    @Override
+    int keyAt(int index) {
+        return load(index);
+    }
+
+    @Override
+    public int getKey(int index) {
+        final int d = load(index);
+        record(OperationBuffer.GET, index, -1, observed(index), null);
+
+        return d;
+    }
+
+    @Override
+    public int keyOf(Integer item) {
+        return item == null ? Integer.MIN_VALUE : item;
+    }
+
+    @Override
+    protected Integer element(int index) {
+        return load(index);
+    }
+
+    @Override
+    protected Integer observed(int index) {
+        return hasListeners() ? load(index) : null;
+    }
+
+    @Override
+    protected void storeElement(int index, Integer item) {
+        store(index, item);
+    }
+
+    @Override
+    protected void clearElement(int index) {
+        // An int can't be emptied, the old value stays until overwritten
+    }
+
+    @Override
+    protected void moveElement(int index, int newIndex) {
+        store(newIndex, load(index));
+    }
+
+    @Override
+    protected void swapElements(int index1, int index2) {
+        int temp = load(index1);
+        store(index1, load(index2));
+        store(index2, temp);
+    }
+
+    @Override
+    protected int compareElements(int index1, int index2) {
+        return Integer.compare(load(index1), load(index2));
+    }
+
+    @Override
+    protected int compareElement(int index, Integer item) {
+        return Integer.compare(load(index), item);
+    }
+}
@@ -0,0 +1,145 @@
+package run.mycode.sortdemo.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of compact operation records. The sorting thread appends
+ * records while the FX thread periodically transfers everything recorded so
+ * far into a second buffer and processes it in bulk. The buffer stops
+ * accepting records once it reaches its maximum size, so that a sort running
+ * much faster than the FX thread can not exhaust the heap.
+ *
+ * @author bdahl
+ */
+final class OperationBuffer {
+
+    static final int GET = 0;
+    static final int REMOVE = 1;
+    static final int SET = 2;
+    static final int MOVE = 3;
+    static final int COMPARE = 4;
+    static final int COMPARE_ITEM = 5;
+    static final int SWAP = 6;
+
+    private static final int INTS = 4;  // op, index1, index2, worker
+    private static final int REFS = 2;  // val1, val2
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int maxSize;
+    private int[] ints;
+    private Object[] refs;
+    private int size;
+
+    /**
+     * Create an empty buffer
+     *
+     * @param maxSize the most records the buffer will hold
+     */
+    OperationBuffer(int maxSize) {
+        this.maxSize = maxSize;
+        ints = new int[INITIAL_CAPACITY * INTS];
+        refs = new Object[INITIAL_CAPACITY * REFS];
+        size = 0;
+    }
+
+    /**
+     * Append a record to the buffer
+     *
+     * @param op the operation code
+     * @param index1 the first index involved in the operation
+     * @param index2 the second index involved in the operation, -1 if none
+     * @param worker the worker thread that performed the operation
+     * @param val1 the first value involved in the operation
+     * @param val2 the second value involved in the operation
+     * @return false if the buffer is full and the record was dropped
+     */
+    synchronized boolean add(int op, int index1, int index2, int worker,
+            Object val1, Object val2) {
+        if (size >= maxSize) {
+            return false;
+        }
+
+        if (size * INTS == ints.length) {
+            ints = Arrays.copyOf(ints, ints.length * 2);
+            refs = Arrays.copyOf(refs, refs.length * 2);
+        }
+
+        int i = size * INTS;
+        ints[i] = op;
+        ints[i + 1] = index1;
+        ints[i + 2] = index2;
+        ints[i + 3] = worker;
+
+        int r = size * REFS;
+        refs[r] = val1;
+        refs[r + 1] = val2;
+
+        size++;
+        return true;
+    }
+
+    /**
+     * Check if there are any records waiting in the buffer
+     *
+     * @return true if no records are waiting
+     */
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Move every record in this buffer into an empty buffer, leaving this
+     * buffer empty. The storage of the two buffers is exchanged, so no records
+     * are copied.
+     *
+     * @param other an empty buffer that is only accessed by the caller
+     */
+    synchronized void transferTo(OperationBuffer other) {
+        int[] i = other.ints;
+        Object[] r = other.refs;
+
+        other.ints = ints;
+        other.refs = refs;
+        other.size = size;
+
+        ints = i;
+        refs = r;
+        size = 0;
+    }
+
+    /**
+     * Discard all records, releasing references to any recorded values
+     */
+    void clear() {
+        Arrays.fill(refs, 0, size * REFS, null);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int op(int record) {
+        return ints[record * INTS];
+    }
+
+    int index1(int record) {
+        return ints[record * INTS + 1];
+    }
+
+    int index2(int record) {
+        return ints[record * INTS + 2];
+    }
+
+    int worker(int record) {
+        return ints[record * INTS + 3];
+    }
+
+    Object value1(int record) {
+        return refs[record * REFS];
+    }
+
+    Object value2(int record) {
+        return refs[record * REFS + 1];
+    }
+}
@@ -0,0 +1,244 @@
+package run.mycode.sortdemo.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The running totals of operations performed on one or more DemoArrays.
+ * Counts are 64-bit and may be updated from any number of threads at once,
+ * so several arrays, or several threads sorting the same array, can share a
+ * single set of counts.
+ *
+ * @author bdahl
+ */
+public class OperationCounts {
+
+    private final LongAdder accesses;
+    private final LongAdder gets;
+    private final LongAdder puts;
+    private final LongAdder compares;
+    private final LongAdder swaps;
+    private final LongAdder bucketWrites;
+    private final LongAdder bytesRead;
+    private final LongAdder bytesWritten;
+    private final LongAdder passes;
+
+    /**
+     * Create a new set of counts, all starting at zero
+     */
+    public OperationCounts() {
+        accesses = new LongAdder();
+        gets = new LongAdder();
+        puts = new LongAdder();
+        compares = new LongAdder();
+        swaps = new LongAdder();
+        bucketWrites = new LongAdder();
+        bytesRead = new LongAdder();
+        bytesWritten = new LongAdder();
+        passes = new LongAdder();
+    }
+
+    /**
+     * Count one instrumented operation
+     *
+     * @param op the operation code from OperationBuffer
+     */
+    void count(int op) {
+        switch (op) {
+            case OperationBuffer.GET:
+            case OperationBuffer.REMOVE:
+                accesses.increment();
+                gets.increment();
+                break;
+            case OperationBuffer.SET:
+                accesses.increment();
+                puts.increment();
+                break;
+            case OperationBuffer.MOVE:
+                accesses.increment();
+                gets.increment();
+                puts.increment();
+                break;
+            case OperationBuffer.COMPARE:
+                accesses.add(2);
+                gets.add(2);
+                compares.increment();
+                break;
+            case OperationBuffer.COMPARE_ITEM:
+                accesses.increment();
+                gets.increment();
+                compares.increment();
+                break;
+            case OperationBuffer.SWAP:
+                accesses.add(4);
+                gets.add(2);
+                puts.add(2);
+                swaps.increment();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + op);
+        }
+    }
+
+    /**
+     * Count one write to a bucket table of a distribution sort. Bucket tables
+     * live outside the array, so these are not counted as array accesses.
+     */
+    void countBucketWrite() {
+        bucketWrites.increment();
+    }
+
+    /**
+     * Count the bytes moved to or from storage by one instrumented operation
+     * on an array kept outside the heap
+     *
+     * @param op the operation code from OperationBuffer
+     * @param bytes the number of bytes each element takes in storage
+     */
+    void countBytes(int op, int bytes) {
+        switch (op) {
+            case OperationBuffer.GET:
+            case OperationBuffer.REMOVE:
+            case OperationBuffer.COMPARE_ITEM:
+                bytesRead.add(bytes);
+                break;
+            case OperationBuffer.SET:
+                bytesWritten.add(bytes);
+                break;
+            case OperationBuffer.MOVE:
+                bytesRead.add(bytes);
+                bytesWritten.add(bytes);
+                break;
+            case OperationBuffer.COMPARE:
+                bytesRead.add(2L * bytes);
+                break;
+            case OperationBuffer.SWAP:
+                bytesRead.add(2L * bytes);
+                bytesWritten.add(2L * bytes);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + op);
+        }
+    }
+
+    /**
+     * Count bytes read from files by a sort
+     *
+     * @param bytes the number of bytes read
+     */
+    void countBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Count bytes written to files by a sort
+     *
+     * @param bytes the number of bytes written
+     */
+    void countBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Count one pass of a sort over its data
+     */
+    void countPass() {
+        passes.increment();
+    }
+
+    /**
+     * Set all of the counts back to zero. Operations counted concurrently with
+     * a reset may or may not be included in the new totals.
+     */
+    public void reset() {
+        accesses.reset();
+        gets.reset();
+        puts.reset();
+        compares.reset();
+        swaps.reset();
+        bucketWrites.reset();
+        bytesRead.reset();
+        bytesWritten.reset();
+        passes.reset();
+    }
+
+    /**
+     * Get the number of times array elements have been accessed
+     *
+     * @return
+     */
+    public long getAccesses() {
+        return accesses.sum();
+    }
+
+    /**
+     * Get the number of times array elements have been read
+     *
+     * @return
+     */
+    public long getGets() {
+        return gets.sum();
+    }
+
+    /**
+     * Get the number of times array elements have been written
+     *
+     * @return
+     */
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    /**
+     * Get the number of times array elements have been compared
+     *
+     * @return
+     */
+    public long getCompares() {
+        return compares.sum();
+    }
+
+    /**
+     * Get the number of times array elements have been swapped
+     *
+     * @return
+     */
+    public long getSwaps() {
+        return swaps.sum();
+    }
+
+    /**
+     * Get the number of writes made to bucket tables while sorting
+     *
+     * @return
+     */
+    public long getBucketWrites() {
+        return bucketWrites.sum();
+    }
+
+    /**
+     * Get the number of bytes read from storage outside the heap
+     *
+     * @return
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Get the number of bytes written to storage outside the heap
+     *
+     * @return
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Get the number of passes made over the data by a sort
+     *
+     * @return
+     */
+    public long getPasses() {
+        return passes.sum();
+    }
+}
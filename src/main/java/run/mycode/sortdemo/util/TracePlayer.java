@@ -0,0 +1,223 @@
+package run.mycode.sortdemo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays back a recorded trace, reconstructing the contents of the sorted
+ * array (and its scratch array) after any number of operations. Full copies
+ * of the arrays are kept at regular intervals, so seeking to any point of the
+ * sort, forwards or backwards, only replays the operations since the nearest
+ * copy. By default the copies are spread out so that together they hold no
+ * more than a fixed number of keys, however long the trace is.
+ *
+ * Empty locations, such as those left by remove or move, hold EMPTY.
+ *
+ * @author bdahl
+ */
+public class TracePlayer {
+
+    /**
+     * The value of an array location that holds no element
+     */
+    public static final int EMPTY = Integer.MIN_VALUE;
+
+    private static final int MIN_KEYFRAME_INTERVAL = 256;
+
+    // The most keys kept in all of the keyframes together, by default
+    private static final long KEYFRAME_BUDGET = 1 << 24;
+
+    private final TraceReader trace;
+    private final int interval;
+    private final List<int[]> mainFrames;
+    private final List<int[]> scratchFrames;
+
+    private final int[] main;
+    private final int[] scratch;
+    private long position;
+
+    /**
+     * Prepare to play back a trace, using a keyframe interval suited to the
+     * size of the arrays and the length of the trace
+     *
+     * @param trace the trace to play back
+     */
+    public TracePlayer(TraceReader trace) {
+        this(trace, defaultInterval(trace));
+    }
+
+    /**
+     * Find a keyframe interval that keeps the keyframes within the budget,
+     * but never makes them closer together than the size of the arrays
+     *
+     * @param trace the trace to play back
+     * @return the number of operations between keyframes
+     */
+    private static int defaultInterval(TraceReader trace) {
+        final int keys = trace.getSize() + trace.getScratchSize();
+        final long frames = Math.max(1, KEYFRAME_BUDGET / Math.max(1, keys));
+        final long spread = (trace.getRecordCount() + frames - 1) / frames;
+
+        return (int) Math.min(Integer.MAX_VALUE,
+                Math.max(spread, Math.max(MIN_KEYFRAME_INTERVAL, keys)));
+    }
+
+    /**
+     * Prepare to play back a trace. The whole trace is read once to build the
+     * keyframes.
+     *
+     * @param trace the trace to play back
+     * @param interval the number of operations between keyframes
+     */
+    public TracePlayer(TraceReader trace, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be "
+                    + "positive: " + interval);
+        }
+
+        this.trace = trace;
+        this.interval = interval;
+
+        main = trace.getInitialKeys();
+        scratch = new int[trace.getScratchSize()];
+        Arrays.fill(scratch, EMPTY);
+        position = 0;
+
+        mainFrames = new ArrayList<>();
+        scratchFrames = new ArrayList<>();
+
+        // Play through the trace once, saving the state every interval
+        final long end = trace.getRecordCount();
+        for (long r = 0; r < end; r++) {
+            if (r % interval == 0) {
+                mainFrames.add(main.clone());
+                scratchFrames.add(scratch.clone());
+            }
+            apply(r);
+        }
+        position = end;
+    }
+
+    /**
+     * Get the trace being played back
+     *
+     * @return the trace
+     */
+    public TraceReader getTrace() {
+        return trace;
+    }
+
+    /**
+     * Get the number of operations in the trace
+     *
+     * @return the number of the last position that can be seeked to
+     */
+    public long length() {
+        return trace.getRecordCount();
+    }
+
+    /**
+     * Get the number of operations that have been played back
+     *
+     * @return the current position in the trace
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the contents of the sorted array at the current position. The
+     * returned array is updated as the player moves through the trace.
+     *
+     * @return the keys in the sorted array
+     */
+    public int[] getMain() {
+        return main;
+    }
+
+    /**
+     * Get the contents of the scratch array at the current position. The
+     * returned array is updated as the player moves through the trace.
+     *
+     * @return the keys in the scratch array, empty if no scratch array was used
+     */
+    public int[] getScratch() {
+        return scratch;
+    }
+
+    /**
+     * Move to a position in the trace, so that the arrays reflect the first
+     * step operations of the sort
+     *
+     * @param step the number of operations to have played
+     */
+    public void seek(long step) {
+        step = Math.max(0, Math.min(step, length()));
+
+        // Play forward from here if that is no slower than using a keyframe
+        if (step < position || step - position > interval) {
+            int frame = (int) (step / interval);
+            if (frame >= mainFrames.size()) {
+                frame = mainFrames.size() - 1;
+            }
+
+            if (frame >= 0) {
+                int[] m = mainFrames.get(frame);
+                System.arraycopy(m, 0, main, 0, m.length);
+                int[] s = scratchFrames.get(frame);
+                System.arraycopy(s, 0, scratch, 0, s.length);
+                position = (long) frame * interval;
+            }
+        }
+
+        while (position < step) {
+            apply(position++);
+        }
+    }
+
+    /**
+     * Play the next operations in the trace
+     *
+     * @param steps the number of operations to play
+     * @return true if there are more operations left to play
+     */
+    public boolean advance(long steps) {
+        seek(position + steps);
+        return position < length();
+    }
+
+    /**
+     * Apply the effect of one record to the arrays
+     *
+     * @param record the record to apply
+     */
+    private void apply(long record) {
+        int[] arr = trace.array(record) == TraceReader.MAIN_ARRAY
+                ? main : scratch;
+
+        switch (trace.op(record)) {
+            case TraceReader.REMOVE:
+                arr[trace.index1(record)] = EMPTY;
+                break;
+            case TraceReader.SET:
+                arr[trace.index1(record)] = trace.key(record);
+                break;
+            case TraceReader.MOVE:
+                arr[trace.index2(record)] = arr[trace.index1(record)];
+                arr[trace.index1(record)] = EMPTY;
+                break;
+            case TraceReader.SWAP: {
+                int i1 = trace.index1(record);
+                int i2 = trace.index2(record);
+                int temp = arr[i1];
+                arr[i1] = arr[i2];
+                arr[i2] = temp;
+                break;
+            }
+            default:
+                // Reads and compares don't change the arrays
+                break;
+        }
+    }
+}
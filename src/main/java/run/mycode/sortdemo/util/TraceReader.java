@@ -0,0 +1,252 @@
+package run.mycode.sortdemo.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a trace file written by a TraceWriter
+ *
+ * @author bdahl
+ */
+public class TraceReader implements AutoCloseable {
+
+    /**
+     * Operation codes found in trace records
+     */
+    public static final int GET = OperationBuffer.GET;
+    public static final int REMOVE = OperationBuffer.REMOVE;
+    public static final int SET = OperationBuffer.SET;
+    public static final int MOVE = OperationBuffer.MOVE;
+    public static final int COMPARE = OperationBuffer.COMPARE;
+    public static final int COMPARE_ITEM = OperationBuffer.COMPARE_ITEM;
+    public static final int SWAP = OperationBuffer.SWAP;
+
+    /**
+     * The array id of records for the array being sorted
+     */
+    public static final int MAIN_ARRAY = 0;
+
+    /**
+     * The array id of records for the scratch array
+     */
+    public static final int SCRATCH_ARRAY = 1;
+
+    // Each mapped window of records must stay under 2GB
+    private static final int CHUNK_RECORDS = 1 << 24;
+
+    private final FileChannel channel;
+    private final String algorithm;
+    private final String layout;
+    private final int size;
+    private final int scratchSize;
+    private final long recordCount;
+    private final int[] initialKeys;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Open a trace file for reading
+     *
+     * @param file the trace file to read
+     * @throws IOException if the file can not be read or is not a trace
+     */
+    public TraceReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TraceWriter.HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.remaining() < TraceWriter.HEADER_SIZE
+                    || header.getInt() != TraceWriter.MAGIC) {
+                throw new IOException("Not a sort trace: " + file);
+            }
+            short version = header.getShort();
+            if (version != TraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version " + version);
+            }
+            header.getShort();  // header size
+            if (header.getInt() != TraceWriter.RECORD_SIZE) {
+                throw new IOException("Unexpected trace record size");
+            }
+            size = header.getInt();
+            scratchSize = header.getInt();
+            int flags = header.getInt();
+            recordCount = header.getLong();
+            algorithm = getName(header);
+            layout = getName(header);
+
+            initialKeys = new int[size];
+            long recordsStart = TraceWriter.HEADER_SIZE;
+            if ((flags & TraceWriter.FLAG_INITIAL_KEYS) != 0) {
+                ByteBuffer keys = ByteBuffer.allocate(4 * size);
+                channel.read(keys, TraceWriter.HEADER_SIZE);
+                keys.flip();
+                keys.asIntBuffer().get(initialKeys);
+                recordsStart += 4L * size;
+            }
+
+            int numChunks = (int) ((recordCount + CHUNK_RECORDS - 1)
+                    / CHUNK_RECORDS);
+            chunks = new MappedByteBuffer[numChunks];
+            for (int c = 0; c < numChunks; c++) {
+                long first = (long) c * CHUNK_RECORDS;
+                long records = Math.min(CHUNK_RECORDS, recordCount - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        recordsStart + first * TraceWriter.RECORD_SIZE,
+                        records * TraceWriter.RECORD_SIZE);
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read a length prefixed name from the header
+     */
+    private static String getName(ByteBuffer buf) {
+        int start = buf.position();
+        int len = buf.getShort();
+        String name = new String(buf.array(), buf.position(), len,
+                StandardCharsets.UTF_8);
+        buf.position(start + TraceWriter.MAX_NAME_BYTES);
+        return name;
+    }
+
+    /**
+     * Get the name of the sorting algorithm that was traced
+     *
+     * @return the algorithm name
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get the name of the initial layout of the data
+     *
+     * @return the layout name
+     */
+    public String getLayout() {
+        return layout;
+    }
+
+    /**
+     * Get the size of the array that was sorted
+     *
+     * @return the number of elements sorted
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the size of the scratch array used by the sort
+     *
+     * @return the number of elements in the scratch array, 0 if none was used
+     */
+    public int getScratchSize() {
+        return scratchSize;
+    }
+
+    /**
+     * Get the number of operations in the trace
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Get the keys of the array before sorting began
+     *
+     * @return a copy of the initial keys
+     */
+    public int[] getInitialKeys() {
+        return initialKeys.clone();
+    }
+
+    /**
+     * Find the position of a record's first byte within its chunk
+     */
+    private int offset(long record) {
+        return (int) (record % CHUNK_RECORDS) * TraceWriter.RECORD_SIZE;
+    }
+
+    private ByteBuffer chunk(long record) {
+        return chunks[(int) (record / CHUNK_RECORDS)];
+    }
+
+    /**
+     * Get the sequence number of a record
+     *
+     * @param record the record number
+     * @return the order in which the operation was performed
+     */
+    public long sequence(long record) {
+        return chunk(record).getLong(offset(record));
+    }
+
+    /**
+     * Get the operation performed by a record
+     *
+     * @param record the record number
+     * @return one of the operation codes defined by this class
+     */
+    public int op(long record) {
+        return chunk(record).get(offset(record) + 8);
+    }
+
+    /**
+     * Get the array a record's operation was performed on
+     *
+     * @param record the record number
+     * @return MAIN_ARRAY or SCRATCH_ARRAY
+     */
+    public int array(long record) {
+        return chunk(record).get(offset(record) + 9);
+    }
+
+    /**
+     * Get the first index involved in a record's operation
+     *
+     * @param record the record number
+     * @return the first index
+     */
+    public int index1(long record) {
+        return chunk(record).getInt(offset(record) + 12);
+    }
+
+    /**
+     * Get the second index involved in a record's operation
+     *
+     * @param record the record number
+     * @return the second index, or -1 if there is none
+     */
+    public int index2(long record) {
+        return chunk(record).getInt(offset(record) + 16);
+    }
+
+    /**
+     * Get the key of the value read or written by a record's operation. Only
+     * GET, REMOVE, SET and COMPARE_ITEM records have a key.
+     *
+     * @param record the record number
+     * @return the key, or Integer.MIN_VALUE if the value was null
+     */
+    public int key(long record) {
+        return chunk(record).getInt(offset(record) + 20);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
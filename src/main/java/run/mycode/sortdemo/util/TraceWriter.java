@@ -0,0 +1,248 @@
+package run.mycode.sortdemo.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every instrumented operation on one or two DemoArrays to an
+ * append-only binary trace file, so that a sort can be analysed or replayed
+ * later without running it again.
+ *
+ * The file begins with a fixed size header naming the algorithm, the size of
+ * the array(s) and the initial data layout, followed by the initial keys of
+ * the array being sorted. After that come fixed size records, one per
+ * operation, each holding:
+ * <pre>
+ *   long sequence   the order the operation was performed in
+ *   byte op         the operation performed, see TraceReader
+ *   byte array      0 for the array being sorted, 1 for the scratch array
+ *   short unused
+ *   int index1      the first index involved
+ *   int index2      the second index involved, or -1
+ *   int key         the key of the value read or written, if any
+ * </pre>
+ * Records are written through a memory mapped window that is moved forward
+ * through the file one chunk at a time as it fills.
+ *
+ * @author bdahl
+ */
+public class TraceWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x53445452;    // "SDTR"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 256;
+    static final int RECORD_SIZE = 24;
+    static final int MAX_NAME_BYTES = 96;
+    static final int FLAG_INITIAL_KEYS = 1;
+
+    // Header field offsets
+    static final int RECORD_COUNT_OFFSET = 24;
+    static final int NAMES_OFFSET = 32;
+
+    private static final int CHUNK_RECORDS = 1 << 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long recordsStart;
+    private final DemoArray<?> main;
+    private final DemoArray<?> scratch;
+
+    private MappedByteBuffer chunk;
+    private long count;
+    private long maxRecords;
+    private boolean truncated;
+    private boolean closed;
+
+    /**
+     * Create a new trace file and begin recording the operations performed on
+     * an array, and optionally on the scratch array used to sort it
+     *
+     * @param file the file to write the trace to, replacing any existing file
+     * @param algorithm the name of the sorting algorithm being traced
+     * @param layout the name of the initial layout of the data
+     * @param main the array being sorted
+     * @param scratch the scratch array used by the sort, may be null
+     *
+     * @throws IOException if the trace file can not be created
+     * @throws IllegalStateException if the array elements have no integer
+     *                               key, see DemoArray.setKeyExtractor
+     */
+    public TraceWriter(Path file, String algorithm, String layout,
+            DemoArray<?> main, DemoArray<?> scratch) throws IOException {
+        this.main = main;
+        this.scratch = scratch;
+
+        final int size = main.length();
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) HEADER_SIZE);
+        header.putInt(RECORD_SIZE);
+        header.putInt(size);
+        header.putInt(scratch == null ? 0 : scratch.length());
+        header.putInt(FLAG_INITIAL_KEYS);
+        header.putLong(0);  // record count, filled in as records are written
+        putName(header, algorithm);
+        putName(header, layout);
+
+        // Save the starting keys so the trace can be replayed
+        ByteBuffer keys = ByteBuffer.allocate(4 * size);
+        for (int i = 0; i < size; i++) {
+            keys.putInt(main.keyAt(i));
+        }
+        keys.flip();
+        channel.write(keys, HEADER_SIZE);
+
+        recordsStart = HEADER_SIZE + 4L * size;
+        count = 0;
+        maxRecords = Long.MAX_VALUE;
+        truncated = false;
+        closed = false;
+
+        main.recordTo(this, 0);
+        if (scratch != null) {
+            scratch.recordTo(this, 1);
+        }
+    }
+
+    /**
+     * Write a length prefixed name into the header
+     */
+    private static void putName(ByteBuffer buf, String name) {
+        byte[] bytes = (name == null ? "" : name)
+                .getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, MAX_NAME_BYTES - 2);
+
+        int start = buf.position();
+        buf.putShort((short) len);
+        buf.put(bytes, 0, len);
+        buf.position(start + MAX_NAME_BYTES);
+    }
+
+    /**
+     * Append a record to the trace
+     *
+     * @param op the operation code from OperationBuffer
+     * @param array the id of the array the operation was performed on
+     * @param index1 the first index involved
+     * @param index2 the second index involved, or -1
+     * @param key the key of the value read or written, if any
+     */
+    synchronized void append(int op, int array, int index1, int index2,
+            int key) {
+        if (closed || truncated) {
+            return;
+        }
+
+        if (count >= maxRecords) {
+            // Too long to keep, stop listening to the arrays
+            truncated = true;
+            main.stopRecording(this);
+            if (scratch != null) {
+                scratch.stopRecording(this);
+            }
+            return;
+        }
+
+        if (count % CHUNK_RECORDS == 0) {
+            nextChunk();
+        }
+
+        chunk.putLong(count);
+        chunk.put((byte) op);
+        chunk.put((byte) array);
+        chunk.putShort((short) 0);
+        chunk.putInt(index1);
+        chunk.putInt(index2);
+        chunk.putInt(key);
+
+        count++;
+    }
+
+    /**
+     * Map the next chunk of the file for writing, growing the file
+     */
+    private void nextChunk() {
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+                    recordsStart + count * RECORD_SIZE,
+                    (long) CHUNK_RECORDS * RECORD_SIZE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        // Keep the header's count current up to the start of the chunk, so a
+        // trace that is never closed can still be read
+        header.putLong(RECORD_COUNT_OFFSET, count);
+    }
+
+    /**
+     * Get the number of operations recorded so far
+     *
+     * @return the number of records in the trace
+     */
+    public synchronized long getRecordCount() {
+        return count;
+    }
+
+    /**
+     * Limit the number of operations recorded. Once the limit is reached no
+     * more records are written and the trace is marked as truncated, so that
+     * a long sort can't fill the disk.
+     *
+     * @param records the most records to write
+     */
+    public synchronized void setMaxRecords(long records) {
+        if (records < 0) {
+            throw new IllegalArgumentException("The limit can't be negative: "
+                    + records);
+        }
+        maxRecords = records;
+    }
+
+    /**
+     * Check if operations were left out of the trace because it reached its
+     * limit
+     *
+     * @return true if the trace doesn't hold every operation
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Stop recording, and write the final record count to the trace
+     *
+     * @throws IOException if the trace file can not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        main.stopRecording(this);
+        if (scratch != null) {
+            scratch.stopRecording(this);
+        }
+
+        header.putLong(RECORD_COUNT_OFFSET, count);
+        header.force();
+        if (chunk != null) {
+            chunk.force();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,122 @@
+package run.mycode.sortdemo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that SortBenchmark reads its command line and writes one row per
+ * run
+ *
+ * @author bdahl
+ */
+public class SortBenchmarkTest {
+
+    /**
+     * Parse some arguments and run the benchmark, returning its output lines
+     */
+    private static String[] run(String... args)
+            throws IOException, InterruptedException {
+        final SortBenchmark bench = new SortBenchmark();
+        assertTrue(bench.parse(args));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            bench.run(out);
+        }
+        return bytes.toString("UTF-8").split("\r?\n");
+    }
+
+    private static void assertRejected(String... args) {
+        try {
+            new SortBenchmark().parse(args);
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        throw new AssertionError("accepted " + String.join(" ", args));
+    }
+
+    @Test
+    public void rejectsBadArguments() {
+        assertRejected("--bogus");
+        assertRejected("--sizes");
+        assertRejected("--sizes", "ten");
+        assertRejected("--sizes", "-1");
+        assertRejected("--sorters", "no-such-sort");
+        assertRejected("--layouts", "sideways");
+        assertRejected("--seeds", "x");
+        assertRejected("--gaps", "fibonacci");
+        assertRejected("--dups", "0");
+        assertRejected("--reps", "0");
+        assertRejected("--storage", "tape");
+        assertRejected("--format", "xml");
+    }
+
+    @Test
+    public void helpAndListRunNothing() throws UnsupportedEncodingException {
+        final PrintStream stdout = System.out;
+        try {
+            System.setOut(new PrintStream(new ByteArrayOutputStream(), true,
+                    "UTF-8"));
+            assertFalse(new SortBenchmark().parse(new String[]{"--help"}));
+            assertFalse(new SortBenchmark().parse(new String[]{"--list"}));
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    @Test
+    public void writesOneRowPerRun() throws IOException, InterruptedException {
+        final String[] lines = run("--sorters", "quick,Merge Sort",
+                "--sizes", "10,100", "--layouts", "random,nearly-sorted",
+                "--seeds", "1,2", "--reps", "2");
+
+        assertTrue(lines[0].startsWith("sorter,size,layout,seed,rep,"));
+        assertEquals(1 + 2 * 2 * 2 * 2 * 2, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i], lines[i].contains(",true,"));
+        }
+    }
+
+    @Test
+    public void runsShellSortOncePerGapSequence()
+            throws IOException, InterruptedException {
+        final String[] lines = run("--sorters", "ShellSorter", "--sizes", "50",
+                "--layouts", "random", "--gaps", "knuth,ciura");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("\"Shell Sort (Knuth)\""));
+        assertTrue(lines[2], lines[2].startsWith("\"Shell Sort (Ciura)\""));
+    }
+
+    @Test
+    public void reportsStabilityWithDuplicates()
+            throws IOException, InterruptedException {
+        final String[] lines = run("--sorters", "tim,heap", "--sizes", "500",
+                "--layouts", "random", "--dups", "4");
+
+        assertTrue(lines[0].endsWith(",sorted,unique,stable"));
+        assertTrue(lines[1], lines[1].startsWith("\"Tim Sort\""));
+        assertTrue(lines[1], lines[1].endsWith(",true,4,true"));
+        assertTrue(lines[2], lines[2].startsWith("\"Heap Sort\""));
+        assertTrue(lines[2], lines[2].endsWith(",true,4,false"));
+    }
+
+    @Test
+    public void writesJson() throws IOException, InterruptedException {
+        final String[] lines = run("--sorters", "insertion", "--sizes", "20",
+                "--layouts", "reversed", "--format", "json");
+
+        assertEquals("[", lines[0]);
+        assertTrue(lines[1], lines[1].contains("\"sorter\": \"Insertion Sort\""));
+        assertTrue(lines[1], lines[1].contains("\"sorted\": true"));
+        assertTrue(lines[1], lines[1].contains("\"stable\": null"));
+        assertEquals("]", lines[2]);
+    }
+}
@@ -0,0 +1,183 @@
+package run.mycode.sortdemo.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import run.mycode.sortdemo.util.DemoArray;
+import run.mycode.sortdemo.util.DemoIntArray;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs every sorter found by the SorterRegistry on data with duplicates,
+ * negative numbers and the extreme int values, and checks that the stable
+ * sorters keep equal elements in order
+ *
+ * @author bdahl
+ */
+@RunWith(Parameterized.class)
+@SuppressWarnings("rawtypes")
+public class SorterTest {
+
+    // The sorters that promise to keep equal elements in order
+    private static final List<Class<?>> STABLE = Arrays.asList(
+            AwfulSort.class, BubbleSorter.class, InsertionSorter.class,
+            BlockMergeSorter.class, BottomUpMergeSorter.class,
+            ParallelMergeSorter.class, TimSorter.class, LsdRadixSorter.class,
+            MsdRadixSorter.class);
+
+    // Large enough to reach the merging and partitioning paths of every sort
+    private static final int SIZE = 600;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> sorters() {
+        List<Object[]> sorters = new ArrayList<>();
+        SorterRegistry.findSorters().forEach((name, sortClass)
+                -> sorters.add(new Object[]{name, sortClass}));
+        return sorters;
+    }
+
+    private final Class<? extends SteppableSorter> sortClass;
+    private final int size;
+
+    public SorterTest(String name, Class<? extends SteppableSorter> sortClass) {
+        this.sortClass = sortClass;
+        this.size = Math.min(SIZE, SorterRegistry.maxSize(sortClass) / 4);
+    }
+
+    @Test
+    public void sortsTinyArrays() throws InterruptedException {
+        for (int n = 0; n <= 4; n++) {
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = n - i;
+            }
+            assertSorts(values);
+        }
+    }
+
+    @Test
+    public void sortsRandomValues() throws InterruptedException {
+        final Random random = new Random(1);
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(size);
+        }
+        assertSorts(values);
+    }
+
+    @Test
+    public void sortsFewUniqueValues() throws InterruptedException {
+        final Random random = new Random(2);
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(5);
+        }
+        assertSorts(values);
+    }
+
+    @Test
+    public void sortsNegativeValues() throws InterruptedException {
+        final Random random = new Random(3);
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(2 * size) - size;
+        }
+        assertSorts(values);
+    }
+
+    @Test
+    public void sortsExtremeValues() throws InterruptedException {
+        final int[] choices = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0,
+            1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        final Random random = new Random(4);
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = choices[random.nextInt(choices.length)];
+        }
+        assertSorts(values);
+    }
+
+    @Test
+    public void sortsReversedValues() throws InterruptedException {
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = size - i;
+        }
+        assertSorts(values);
+    }
+
+    @Test
+    public void stableSortsKeepEqualElementsInOrder()
+            throws InterruptedException {
+        if (!STABLE.contains(sortClass)) {
+            return;
+        }
+
+        final Random random = new Random(5);
+        final Tagged[] tagged = new Tagged[size];
+        for (int i = 0; i < size; i++) {
+            tagged[i] = new Tagged(random.nextInt(8) - 4, i);
+        }
+        final DemoArray<Tagged> arr = new DemoArray<>(tagged);
+        arr.setKeyExtractor(t -> t.key);
+
+        final SteppableSorter<Tagged> sorter
+                = SorterRegistry.create(sortClass, arr);
+        sorter.sortNow();
+        assertTrue(sorter.isSorted());
+
+        for (int i = 1; i < size; i++) {
+            final Tagged prev = arr.get(i - 1);
+            final Tagged next = arr.get(i);
+            assertTrue("out of order at " + i, prev.key <= next.key);
+            if (prev.key == next.key) {
+                assertTrue("equal keys swapped at " + i,
+                        prev.index < next.index);
+            }
+        }
+    }
+
+    /**
+     * Sort a copy of some values and check the result against Arrays.sort
+     */
+    private void assertSorts(int[] values) throws InterruptedException {
+        final DemoIntArray arr = new DemoIntArray(values);
+        final SteppableSorter<Integer> sorter
+                = SorterRegistry.create(sortClass, arr);
+        sorter.sortNow();
+
+        final int[] expected = values.clone();
+        Arrays.sort(expected);
+        assertTrue(sorter.isSorted());
+        assertEquals(values.length, arr.length());
+        assertArrayEquals(expected, arr.toIntArray());
+    }
+
+    /**
+     * A key tagged with its original location. Only the key is compared.
+     */
+    private static final class Tagged implements Comparable<Tagged> {
+
+        final int key;
+        final int index;
+
+        Tagged(int key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Tagged other) {
+            return Integer.compare(key, other.key);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package run.mycode.sortdemo.sort;
+
+import org.junit.Test;
+import run.mycode.sortdemo.util.DemoIntArray;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a sort that fails in the background stops and reports its
+ * failure, rather than leaving the UI waiting for it to finish
+ *
+ * @author bdahl
+ */
+public class SteppableSorterTest {
+
+    // The longest to wait for a background sort to stop
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void failedSortIsInterruptedWithItsFailure()
+            throws InterruptedException {
+        final IllegalStateException failure = new IllegalStateException();
+        final SteppableSorter<Integer> sorter = new SteppableSorter<Integer>(
+                new DemoIntArray(new int[]{3, 2, 1}), "Failing Sort") {
+            @Override
+            protected void sort() throws InterruptedException {
+                step.acquire();
+                throw failure;
+            }
+        };
+
+        sorter.step(10);
+        waitForInterrupt(sorter);
+
+        assertSame(failure, sorter.getFailure());
+        assertFalse(sorter.isSorted());
+    }
+
+    @Test
+    public void failedWorkerStopsParallelSort() throws InterruptedException {
+        final SteppableSorter<Integer> sorter = new SteppableSorter<Integer>(
+                new DemoIntArray(new int[]{3, 2, 1}), "Failing Parallel Sort") {
+            @Override
+            protected void sort() throws InterruptedException {
+                SorterThreads.runParallel(step, "Failing Parallel Sort",
+                        () -> SorterThreads.both(
+                                () -> {
+                                    throw new IllegalStateException();
+                                },
+                                () -> {
+                                    // Waits for steps that never come
+                                    while (true) {
+                                        step.acquire();
+                                    }
+                                }));
+            }
+        };
+
+        sorter.step();
+        waitForInterrupt(sorter);
+
+        assertTrue(sorter.getFailure() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void interruptedSortHasNoFailure() throws InterruptedException {
+        final SteppableSorter<Integer> sorter
+                = new QuickSorter<>(new DemoIntArray(new int[]{3, 2, 1}));
+
+        sorter.step();
+        sorter.interrupt();
+
+        assertTrue(sorter.isInterrupted());
+        assertNull(sorter.getFailure());
+    }
+
+    private static void waitForInterrupt(SteppableSorter<?> sorter)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!sorter.isInterrupted()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("the sort didn't stop", sorter.isInterrupted());
+    }
+}
@@ -0,0 +1,52 @@
+package run.mycode.sortdemo.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a DemoIntArray counts operations like a DemoArray
+ *
+ * @author bdahl
+ */
+public class DemoIntArrayTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void countsLikeADemoArray() {
+        final Integer[] boxed = {3, 1, 2};
+        final DemoArray<Integer> objects = new DemoArray<>(boxed);
+        final DemoIntArray ints = new DemoIntArray(new int[]{3, 1, 2});
+
+        for (DemoArray<Integer> arr : new DemoArray[]{objects, ints}) {
+            arr.compare(0, 1);
+            arr.swap(0, 1);
+            arr.set(2, arr.get(0));
+            arr.move(1, 0);
+        }
+
+        assertEquals(objects.getAccesses(), ints.getAccesses());
+        assertEquals(objects.getGets(), ints.getGets());
+        assertEquals(objects.getPuts(), ints.getPuts());
+        assertEquals(objects.getSwaps(), ints.getSwaps());
+        assertEquals(objects.getCompares(), ints.getCompares());
+        assertArrayEquals(new int[]{3, 3, 1}, ints.toIntArray());
+    }
+
+    @Test
+    public void rejectsNullWithoutCountingIt() {
+        final DemoIntArray arr = new DemoIntArray(new int[]{1, 2});
+
+        try {
+            arr.set(0, null);
+            fail("null was stored in an int array");
+        } catch (IllegalArgumentException expected) {
+            // An int can't hold null
+        }
+
+        assertEquals(0, arr.getAccesses());
+        assertArrayEquals(new int[]{1, 2}, arr.toIntArray());
+    }
+}
@@ -0,0 +1,103 @@
+package run.mycode.sortdemo.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import run.mycode.sortdemo.sort.ExternalMergeSorter;
+import run.mycode.sortdemo.sort.SteppableSorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a MappedIntArray holds its values, counts its bytes, and
+ * deletes its temporary files when closed
+ *
+ * @author bdahl
+ */
+public class MappedIntArrayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Count the temporary files MappedIntArrays have left behind
+     */
+    private static int tempFiles() throws IOException {
+        final Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        int count = 0;
+        try (DirectoryStream<Path> files
+                = Files.newDirectoryStream(dir, "sortdemo-*.ints")) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void holdsItsValues() throws IOException {
+        final int[] values = {5, -3, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        try (MappedIntArray arr = new MappedIntArray(values)) {
+            assertEquals(values.length, arr.length());
+            assertArrayEquals(values, arr.toIntArray());
+
+            arr.set(1, 7);
+            assertEquals(7, (int) arr.get(1));
+            assertEquals(2 * Integer.BYTES, arr.getBytesRead()
+                    + arr.getBytesWritten());
+        }
+    }
+
+    @Test
+    public void closeDeletesTemporaryFiles()
+            throws IOException, InterruptedException {
+        final int before = tempFiles();
+
+        final int[] values = new int[10_000];
+        final Random random = new Random(1);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt();
+        }
+
+        final MappedIntArray arr = new MappedIntArray(values);
+        final SteppableSorter<Integer> sorter = new ExternalMergeSorter(arr);
+        sorter.sortNow();
+        assertTrue(tempFiles() > before);
+
+        final int[] expected = values.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, arr.toIntArray());
+
+        arr.close();
+        assertEquals(before, tempFiles());
+    }
+
+    @Test
+    public void closeKeepsTheCallersFile() throws IOException {
+        final Path file = folder.newFile().toPath();
+
+        try (MappedIntArray arr = new MappedIntArray(file, 100)) {
+            arr.set(99, 42);
+            arr.flush();
+        }
+
+        assertTrue(Files.exists(file));
+        assertEquals(100 * Integer.BYTES, Files.size(file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNull() throws IOException {
+        try (MappedIntArray arr = new MappedIntArray(3)) {
+            arr.set(0, null);
+        }
+    }
+}
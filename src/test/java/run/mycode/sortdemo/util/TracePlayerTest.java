@@ -0,0 +1,167 @@
+package run.mycode.sortdemo.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import run.mycode.sortdemo.sort.InsertionSorter;
+import run.mycode.sortdemo.sort.MergeSorter;
+import run.mycode.sortdemo.sort.SteppableSorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records sorts with a TraceWriter, reads them back with a TraceReader and
+ * plays them with a TracePlayer, seeking forwards and backwards
+ *
+ * @author bdahl
+ */
+public class TracePlayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int[] randomValues(int size, long seed) {
+        final Random random = new Random(seed);
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(size) - size / 2;
+        }
+        return values;
+    }
+
+    @Test
+    public void headerRoundTrips() throws IOException, InterruptedException {
+        final int[] values = randomValues(300, 1);
+        final DemoIntArray arr = new DemoIntArray(values);
+        final SteppableSorter<Integer> sorter = new MergeSorter<>(arr);
+        final Path file = folder.newFile().toPath();
+
+        try (TraceWriter writer = new TraceWriter(file, MergeSorter.NAME,
+                "Random", arr, sorter.getScratchArray())) {
+            sorter.sortNow();
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(MergeSorter.NAME, reader.getAlgorithm());
+            assertEquals("Random", reader.getLayout());
+            assertEquals(values.length, reader.getSize());
+            assertEquals(values.length, reader.getScratchSize());
+            assertArrayEquals(values, reader.getInitialKeys());
+
+            // One record per operation, some of which are several accesses
+            final long accesses = arr.getAccesses()
+                    + sorter.getScratchArray().getAccesses();
+            assertTrue(reader.getRecordCount() > 0);
+            assertTrue(reader.getRecordCount() <= accesses);
+        }
+    }
+
+    @Test
+    public void playerEndsWithTheSortedArray()
+            throws IOException, InterruptedException {
+        final int[] values = randomValues(300, 2);
+        final DemoIntArray arr = new DemoIntArray(values);
+        final SteppableSorter<Integer> sorter = new MergeSorter<>(arr);
+        final Path file = folder.newFile().toPath();
+
+        try (TraceWriter writer = new TraceWriter(file, MergeSorter.NAME,
+                "Random", arr, sorter.getScratchArray())) {
+            sorter.sortNow();
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            final TracePlayer player = new TracePlayer(reader);
+            assertEquals(reader.getRecordCount(), player.getPosition());
+            assertArrayEquals(arr.toIntArray(), player.getMain());
+
+            player.seek(0);
+            assertArrayEquals(values, player.getMain());
+        }
+    }
+
+    @Test
+    public void seeksMatchPlayingFromTheStart()
+            throws IOException, InterruptedException {
+        final int[] values = randomValues(200, 3);
+        final DemoIntArray arr = new DemoIntArray(values);
+        final SteppableSorter<Integer> sorter = new MergeSorter<>(arr);
+        final Path file = folder.newFile().toPath();
+
+        try (TraceWriter writer = new TraceWriter(file, MergeSorter.NAME,
+                "Random", arr, sorter.getScratchArray())) {
+            sorter.sortNow();
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            // Keyframes close together, and none at all to compare against
+            final TracePlayer player = new TracePlayer(reader, 50);
+            final TracePlayer linear = new TracePlayer(reader,
+                    Integer.MAX_VALUE);
+
+            final Random random = new Random(4);
+            for (int k = 0; k < 100; k++) {
+                final long step = (long) (random.nextDouble()
+                        * (player.length() + 1));
+                player.seek(step);
+                linear.seek(0);
+                linear.seek(step);
+
+                assertEquals(step, player.getPosition());
+                assertArrayEquals("main at " + step, linear.getMain(),
+                        player.getMain());
+                assertArrayEquals("scratch at " + step, linear.getScratch(),
+                        player.getScratch());
+            }
+        }
+    }
+
+    @Test
+    public void advanceStopsAtTheEnd() throws IOException, InterruptedException {
+        final DemoIntArray arr = new DemoIntArray(randomValues(50, 5));
+        final SteppableSorter<Integer> sorter = new InsertionSorter<>(arr);
+        final Path file = folder.newFile().toPath();
+
+        try (TraceWriter writer = new TraceWriter(file, InsertionSorter.NAME,
+                "Random", arr, null)) {
+            sorter.sortNow();
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            final TracePlayer player = new TracePlayer(reader);
+            player.seek(0);
+
+            long steps = 0;
+            while (player.advance(7)) {
+                steps += 7;
+            }
+            assertTrue(steps < player.length());
+            assertEquals(player.length(), player.getPosition());
+            assertArrayEquals(arr.toIntArray(), player.getMain());
+            assertEquals(0, player.getScratch().length);
+        }
+    }
+
+    @Test
+    public void recordingStopsAtTheLimit()
+            throws IOException, InterruptedException {
+        final DemoIntArray arr = new DemoIntArray(randomValues(200, 6));
+        final SteppableSorter<Integer> sorter = new InsertionSorter<>(arr);
+        final Path file = folder.newFile().toPath();
+
+        final TraceWriter writer = new TraceWriter(file, InsertionSorter.NAME,
+                "Random", arr, null);
+        writer.setMaxRecords(100);
+        sorter.sortNow();
+        writer.close();
+
+        assertTrue(writer.isTruncated());
+        assertFalse(arr.isRecording());
+        assertEquals(100, writer.getRecordCount());
+    }
+}